@@ -2,8 +2,10 @@ package org.chase.pierce.notevaultapi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class NoteVaultApiApplication {
 
     public static void main(String[] args) {
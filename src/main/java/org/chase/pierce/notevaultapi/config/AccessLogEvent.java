@@ -0,0 +1,7 @@
+package org.chase.pierce.notevaultapi.config;
+
+/**
+ * One completed request as captured on the request thread. Formatting is left to the access log writer.
+ */
+public record AccessLogEvent(long epochMillis, String method, String path, int status, long durationMicros, String user) {
+}
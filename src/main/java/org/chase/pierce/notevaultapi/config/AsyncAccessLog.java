@@ -0,0 +1,161 @@
+package org.chase.pierce.notevaultapi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Access log that never makes the request thread wait. Events go into a fixed-size queue and a single
+ * background thread formats them as JSON lines. When the queue is full the event is dropped and counted
+ * instead of blocking.
+ */
+public class AsyncAccessLog {
+
+    public static final String DROPPED_METRIC = "notevault.access_log.dropped";
+    public static final String FAILED_METRIC = "notevault.access_log.failed";
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncAccessLog.class);
+
+    private static final int BATCH_SIZE = 256;
+
+    private final BlockingQueue<AccessLogEvent> queue;
+    private final Consumer<String> sink;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Thread writer;
+    // Reused for every line; only the writer thread formats
+    private final StringBuilder line = new StringBuilder(256);
+
+    public AsyncAccessLog(int capacity, Consumer<String> sink, MeterRegistry meterRegistry) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.sink = sink;
+        this.dropped = Counter.builder(DROPPED_METRIC)
+                .description("Access log events discarded because the queue was full")
+                .register(meterRegistry);
+        this.failed = Counter.builder(FAILED_METRIC)
+                .description("Access log events that could not be formatted or written")
+                .register(meterRegistry);
+        this.writer = Thread.ofPlatform()
+                .name("access-log-writer")
+                .daemon()
+                .uncaughtExceptionHandler((thread, ex) ->
+                        log.error("Access log writer stopped; further events will be dropped", ex))
+                .unstarted(this::drain);
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Queues an event without blocking. Returns {@code false} if the queue was full and the event was dropped.
+     */
+    public boolean offer(AccessLogEvent event) {
+        if (queue.offer(event)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    public long droppedCount() {
+        return (long) dropped.count();
+    }
+
+    public long failedCount() {
+        return (long) failed.count();
+    }
+
+    /**
+     * Stops the writer after it has flushed whatever is already queued.
+     */
+    public void stop() throws InterruptedException {
+        writer.interrupt();
+        writer.join();
+    }
+
+    private void drain() {
+        List<AccessLogEvent> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                writeAll(batch);
+            }
+        } catch (InterruptedException ex) {
+            // Shutting down: fall through and flush the remainder
+        }
+        queue.drainTo(batch);
+        writeAll(batch);
+    }
+
+    // One bad event must not take the writer thread down with it, so failures are counted and the batch goes on
+    private void writeAll(List<AccessLogEvent> batch) {
+        RuntimeException firstFailure = null;
+        int failures = 0;
+        for (AccessLogEvent event : batch) {
+            try {
+                sink.accept(format(event));
+            } catch (RuntimeException ex) {
+                failed.increment();
+                failures++;
+                if (firstFailure == null) {
+                    firstFailure = ex;
+                }
+            }
+        }
+        batch.clear();
+        if (firstFailure != null) {
+            log.warn("Could not write {} access log event(s)", failures, firstFailure);
+        }
+    }
+
+    String format(AccessLogEvent event) {
+        line.setLength(0);
+        line.append("{\"ts\":\"").append(Instant.ofEpochMilli(event.epochMillis()))
+                .append("\",\"method\":");
+        appendString(event.method());
+        line.append(",\"path\":");
+        appendString(event.path());
+        line.append(",\"status\":").append(event.status())
+                .append(",\"durationUs\":").append(event.durationMicros())
+                .append(",\"user\":");
+        appendString(event.user());
+        line.append('}');
+        return line.toString();
+    }
+
+    private void appendString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,42 @@
+package org.chase.pierce.notevaultapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class DatabaseConfig {
+
+    // Hikari refuses connection timeouts below 250ms
+    private static final long MIN_POOL_WAIT_MILLIS = 250;
+    private static final long POOL_WAIT_MILLIS = 1000;
+
+    /**
+     * With {@code spring.threads.virtual.enabled=true} requests no longer queue for one of Tomcat's 200 threads, so
+     * the Hikari pool is bounded by a semaphore of the same size instead. The pool's connection timeout is split
+     * between the two waits so that together they never exceed it. A thread holding a permit only finds the pool
+     * empty while a connection is being replaced, so the pool keeps a second of it and the semaphore the rest.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    static BeanPostProcessor poolBoundedDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    long timeout = hikari.getConnectionTimeout();
+                    long poolWait = Math.max(MIN_POOL_WAIT_MILLIS, Math.min(POOL_WAIT_MILLIS, timeout / 2));
+                    hikari.setConnectionTimeout(poolWait);
+                    return new PoolBoundedDataSource(hikari, hikari.getMaximumPoolSize(),
+                            Duration.ofMillis(Math.max(0, timeout - poolWait)));
+                }
+                return bean;
+            }
+        };
+    }
+}
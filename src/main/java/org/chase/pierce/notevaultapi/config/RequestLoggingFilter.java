@@ -4,21 +4,58 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Logs every request. In the default {@code text} format each request is logged as a readable line on the
+ * request thread. With {@code notevault.access-log.format=json} requests are handed to an {@link AsyncAccessLog}
+ * and written as JSON lines to the {@code notevault.access} logger by a background thread, optionally
+ * sampling successful (2xx) responses.
+ */
 @Component
 public class RequestLoggingFilter extends OncePerRequestFilter {
 
+    public static final String ACCESS_LOGGER = "notevault.access";
+
     private static final Logger log = LoggerFactory.getLogger(RequestLoggingFilter.class);
 
+    private final AsyncAccessLog accessLog;
+    private final double successSampleRate;
+
+    @Autowired
+    public RequestLoggingFilter(@Value("${notevault.access-log.format:text}") String format,
+                                @Value("${notevault.access-log.capacity:8192}") int capacity,
+                                @Value("${notevault.access-log.success-sample-rate:1.0}") double successSampleRate,
+                                ObjectProvider<MeterRegistry> meterRegistry) {
+        this("json".equalsIgnoreCase(format)
+                        ? new AsyncAccessLog(capacity, LoggerFactory.getLogger(ACCESS_LOGGER)::info,
+                                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry))
+                        : null,
+                successSampleRate);
+        if (accessLog != null) {
+            accessLog.start();
+        }
+    }
+
+    RequestLoggingFilter(AsyncAccessLog accessLog, double successSampleRate) {
+        this.accessLog = accessLog;
+        this.successSampleRate = successSampleRate;
+    }
+
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
                                     @NonNull HttpServletResponse response,
@@ -28,6 +65,11 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
 
+        if (accessLog != null) {
+            enqueue(request, response, start);
+            return;
+        }
+
         long durationMs = (System.nanoTime() - start) / 1_000_000;
         int status = response.getStatus();
         String method = request.getMethod();
@@ -46,6 +88,28 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
         }
     }
 
+    private void enqueue(HttpServletRequest request, HttpServletResponse response, long start) {
+        int status = response.getStatus();
+        if (status >= 200 && status < 300 && successSampleRate < 1.0
+                && ThreadLocalRandom.current().nextDouble() >= successSampleRate) {
+            return;
+        }
+        long durationMicros = (System.nanoTime() - start) / 1_000;
+        accessLog.offer(new AccessLogEvent(System.currentTimeMillis(), request.getMethod(),
+                request.getRequestURI(), status, durationMicros, resolveUsername()));
+    }
+
+    @Override
+    public void destroy() {
+        if (accessLog != null) {
+            try {
+                accessLog.stop();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private String resolveUsername() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null && auth.isAuthenticated()) {
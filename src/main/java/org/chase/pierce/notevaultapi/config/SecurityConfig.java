@@ -1,8 +1,14 @@
 package org.chase.pierce.notevaultapi.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import jakarta.servlet.http.HttpServletResponse;
+import org.chase.pierce.notevaultapi.entity.Role;
+import org.chase.pierce.notevaultapi.security.CachingPasswordEncoder;
 import org.chase.pierce.notevaultapi.security.DefaultUserFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
@@ -15,6 +21,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -49,7 +56,10 @@ public class SecurityConfig {
                         body.put("message", "Invalid credentials");
                         new ObjectMapper().writeValue(response.getOutputStream(), body);
                     }))
+            // Metrics reveal traffic per route and pool state, so only health is open to every caller
             .authorizeHttpRequests(auth -> auth
+                    .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                    .requestMatchers("/actuator/**").hasRole(Role.ADMIN.name())
                     .anyRequest().permitAll()
             )
             .exceptionHandling(ex -> ex
@@ -70,7 +80,11 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${notevault.cache.credentials.max-size:10000}") long maxSize,
+            @Value("${notevault.cache.credentials.ttl:5m}") Duration ttl,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new CachingPasswordEncoder(new BCryptPasswordEncoder(), maxSize, ttl,
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
     }
 }
@@ -0,0 +1,171 @@
+package org.chase.pierce.notevaultapi.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.jackson.autoconfigure.JacksonProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.convert.converter.ConverterFactory;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverters;
+import org.springframework.http.converter.cbor.JacksonCborHttpMessageConverter;
+import org.springframework.http.converter.smile.JacksonSmileHttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import tools.jackson.databind.JacksonModule;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.PropertyNamingStrategy;
+import tools.jackson.databind.cfg.ConstructorDetector;
+import tools.jackson.databind.cfg.DateTimeFeature;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import java.lang.reflect.Field;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final CBORMapper cborMapper;
+    private final SmileMapper smileMapper;
+
+    public WebConfig(CBORMapper cborMapper, JacksonProperties jacksonProperties,
+                     ObjectProvider<JacksonModule> modules) {
+        this.cborMapper = cborMapper;
+        this.smileMapper = smileMapper(jacksonProperties, modules.orderedStream().toList());
+    }
+
+    /**
+     * Serves and accepts CBOR and Smile next to JSON, chosen by the Accept and Content-Type headers. CBOR uses the
+     * mapper Boot configures from {@code spring.jackson.*}; Boot has no Smile mapper, so {@link #smileMapper} builds
+     * one from the same settings.
+     */
+    @Override
+    public void configureMessageConverters(HttpMessageConverters.ServerBuilder builder) {
+        builder.withCborConverter(new JacksonCborHttpMessageConverter(cborMapper))
+                .withSmileConverter(new JacksonSmileHttpMessageConverter(smileMapper));
+    }
+
+    /**
+     * A Smile mapper set up the way Boot sets up its JSON and CBOR mappers: the {@code spring.jackson.*} properties
+     * and every {@link JacksonModule} bean, so all three formats write the same fields the same way. Boot 4 has no
+     * Smile mapper and keeps the customizer that applies those properties to its own builders package-private, so
+     * this repeats what it does; {@code WebConfigTest} writes a note in all three formats to catch them drifting apart.
+     */
+    public static SmileMapper smileMapper(JacksonProperties properties, List<JacksonModule> modules) {
+        SmileMapper.Builder builder = SmileMapper.builder();
+        if (properties.isUseJackson2Defaults()) {
+            builder.configureForJackson2()
+                    .disable(DateTimeFeature.WRITE_DATES_AS_TIMESTAMPS, DateTimeFeature.WRITE_DURATIONS_AS_TIMESTAMPS);
+        }
+        if (properties.isFindAndAddModules()) {
+            builder.findAndAddModules(WebConfig.class.getClassLoader());
+        }
+        if (properties.getDefaultPropertyInclusion() != null) {
+            builder.changeDefaultPropertyInclusion(inclusion -> inclusion
+                    .withValueInclusion(properties.getDefaultPropertyInclusion())
+                    .withContentInclusion(properties.getDefaultPropertyInclusion()));
+        }
+        if (properties.getTimeZone() != null) {
+            builder.defaultTimeZone(properties.getTimeZone());
+        }
+        if (properties.getLocale() != null) {
+            builder.defaultLocale(properties.getLocale());
+        }
+        builder.defaultLeniency(properties.getDefaultLeniency());
+        properties.getVisibility().forEach((accessor, visibility) ->
+                builder.changeDefaultVisibility(checker -> checker.withVisibility(accessor, visibility)));
+        properties.getSerialization().forEach(builder::configure);
+        properties.getDeserialization().forEach(builder::configure);
+        properties.getMapper().forEach(builder::configure);
+        properties.getDatatype().getDatetime().forEach(builder::configure);
+        properties.getDatatype().getEnum().forEach(builder::configure);
+        properties.getDatatype().getJsonNode().forEach(builder::configure);
+        if (properties.getDateFormat() != null) {
+            builder.defaultDateFormat(dateFormat(properties));
+        }
+        if (properties.getPropertyNamingStrategy() != null) {
+            builder.propertyNamingStrategy(propertyNamingStrategy(properties.getPropertyNamingStrategy()));
+        }
+        if (properties.getConstructorDetector() != null) {
+            builder.constructorDetector(switch (properties.getConstructorDetector()) {
+                case USE_PROPERTIES_BASED -> ConstructorDetector.USE_PROPERTIES_BASED;
+                case USE_DELEGATING -> ConstructorDetector.USE_DELEGATING;
+                case EXPLICIT_ONLY -> ConstructorDetector.EXPLICIT_ONLY;
+                default -> ConstructorDetector.DEFAULT;
+            });
+        }
+        return builder.addModules(modules).build();
+    }
+
+    // Like Boot, the date format is either a DateFormat class or a pattern in the configured time zone
+    private static DateFormat dateFormat(JacksonProperties properties) {
+        try {
+            return (DateFormat) BeanUtils.instantiateClass(ClassUtils.forName(properties.getDateFormat(), null));
+        } catch (ClassNotFoundException ex) {
+            SimpleDateFormat format = new SimpleDateFormat(properties.getDateFormat());
+            format.setTimeZone(properties.getTimeZone() != null
+                    ? properties.getTimeZone()
+                    : new SmileMapper().serializationConfig().getTimeZone());
+            return format;
+        }
+    }
+
+    // Either a PropertyNamingStrategy class or the name of a constant in PropertyNamingStrategies
+    private static PropertyNamingStrategy propertyNamingStrategy(String strategy) {
+        try {
+            return (PropertyNamingStrategy) BeanUtils.instantiateClass(ClassUtils.forName(strategy, null));
+        } catch (ClassNotFoundException ex) {
+            Field field = ReflectionUtils.findField(PropertyNamingStrategies.class, strategy,
+                    PropertyNamingStrategy.class);
+            if (field == null) {
+                throw new IllegalStateException("Property naming strategy '" + strategy + "' not found");
+            }
+            return (PropertyNamingStrategy) ReflectionUtils.getField(field, null);
+        }
+    }
+
+    /**
+     * Marks every API response as varying by Accept, so caches keep the formats of one URL apart. The ETags of the
+     * binary formats name the format too, see {@code NoteETagAdvice}.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                return true;
+            }
+        }).addPathPatterns("/api/**");
+    }
+
+    /**
+     * Binds enum request parameters regardless of case, so {@code tagMode=all} and {@code tagMode=ALL} are the same.
+     * Unknown values still fail with a type mismatch.
+     */
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        registry.addConverterFactory(new CaseInsensitiveEnumConverterFactory());
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static class CaseInsensitiveEnumConverterFactory implements ConverterFactory<String, Enum> {
+
+        @Override
+        public <T extends Enum> Converter<String, T> getConverter(Class<T> targetType) {
+            return source -> source.isBlank()
+                    ? null
+                    : (T) Enum.valueOf(targetType, source.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+}
@@ -2,83 +2,328 @@ package org.chase.pierce.notevaultapi.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import org.chase.pierce.notevaultapi.dto.CreateNoteRequest;
+import org.chase.pierce.notevaultapi.dto.CreateNotesRequest;
+import org.chase.pierce.notevaultapi.dto.NoteBatchResult;
+import org.chase.pierce.notevaultapi.dto.NoteCursor;
+import org.chase.pierce.notevaultapi.dto.NoteDeleteResult;
+import org.chase.pierce.notevaultapi.dto.NoteFilter;
+import org.chase.pierce.notevaultapi.dto.NoteNameMatch;
+import org.chase.pierce.notevaultapi.dto.NotePage;
+import org.chase.pierce.notevaultapi.dto.NoteSearchPage;
+import org.chase.pierce.notevaultapi.dto.NoteSearchResult;
+import org.chase.pierce.notevaultapi.dto.NoteSort;
+import org.chase.pierce.notevaultapi.dto.NoteSummary;
+import org.chase.pierce.notevaultapi.dto.PatchNoteRequest;
+import org.chase.pierce.notevaultapi.dto.SearchCursor;
+import org.chase.pierce.notevaultapi.dto.TagMode;
 import org.chase.pierce.notevaultapi.dto.UpdateNoteRequest;
 import org.chase.pierce.notevaultapi.entity.Note;
 import org.chase.pierce.notevaultapi.entity.Role;
+import org.chase.pierce.notevaultapi.exception.InvalidDeleteRequestException;
+import org.chase.pierce.notevaultapi.exception.InvalidSearchQueryException;
+import org.chase.pierce.notevaultapi.exception.NoteVersionMismatchException;
 import org.chase.pierce.notevaultapi.security.UserPrincipal;
 import org.chase.pierce.notevaultapi.service.NoteService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api/v1")
 @Tag(name = "Notes", description = "Endpoints for managing notes")
 public class NoteController {
 
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final int MAX_SEARCH_QUERY_LENGTH = 256;
+    public static final int MIN_LOOKUP_QUERY_LENGTH = 3;
+    public static final int MAX_LOOKUP_QUERY_LENGTH = 255;
+    public static final int MAX_DELETE_IDS = 500;
+    public static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    private static final String INCLUDE_CONTENT = "content";
+    private static final Pattern ETAG_VERSION = Pattern.compile("(\\d{1,18})(?:-cbor|-smile)?");
+
     private final NoteService noteService;
+    private final JsonMapper jsonMapper;
+    private final Validator validator;
 
-    public NoteController(NoteService noteService) {
+    public NoteController(NoteService noteService, JsonMapper jsonMapper, Validator validator) {
         this.noteService = noteService;
+        this.jsonMapper = jsonMapper;
+        this.validator = validator;
     }
 
-    @Operation(summary = "Get all notes", description = "Returns notes for the authenticated user. Admins can see all notes or filter by user ID.")
+    @Operation(summary = "Get all notes", description = "Returns notes for the authenticated user, newest modified first unless another sort is given. "
+            + "Admins can see all notes or filter by user ID. Filters combine: a note must match all of them. With tagMode=ALL a note needs every given tag rather than any one. "
+            + "Notes are listed without their content unless include=content is given. "
+            + "Results are paginated: when more notes exist, the response carries a Link header with rel=\"next\" pointing at the following page. "
+            + "The ETag changes whenever any note in scope does; send it back in If-None-Match to get 304 while nothing has changed.")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Notes retrieved successfully"),
-            @ApiResponse(responseCode = "400", description = "Invalid parameter type", content = @Content),
+            @ApiResponse(responseCode = "200", description = "Notes retrieved successfully",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = NoteSummary.class)))),
+            @ApiResponse(responseCode = "304", description = "No note in scope changed since the ETag in If-None-Match", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid parameter type or cursor", content = @Content),
             @ApiResponse(responseCode = "503", description = "Database unavailable", content = @Content)
     })
-    @GetMapping("/notes")
-    public ResponseEntity<List<Note>> getNotes(
+    // The formats are declared so an unsupported Accept is refused with 406 before the ETag check, which may answer
+    // without a body; the same goes for a single note
+    @GetMapping(value = "/notes", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SMILE_VALUE})
+    public ResponseEntity<List<?>> getNotes(
             @Parameter(description = "Filter by tag names") @RequestParam(required = false) Set<String> tags,
+            @Parameter(description = "Whether notes need any or all of the tags") @RequestParam(defaultValue = "ANY") TagMode tagMode,
             @Parameter(description = "Filter by user ID (admin only)") @RequestParam(required = false) String userId,
             @Parameter(description = "Filter by notebook ID") @RequestParam(required = false) Long notebookId,
+            @Parameter(description = "Only notes modified at or after this time, e.g. 2025-01-15T10:30:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime modifiedSince,
+            @Parameter(description = "Only notes created at or after this time")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @Parameter(description = "Only notes created before this time")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore,
+            @Parameter(description = "Sort order") @RequestParam(defaultValue = "MODIFIED_DESC") NoteSort sort,
+            @Parameter(description = "Opaque cursor from a previous page's next link") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of notes to return (1-" + NoteService.MAX_PAGE_SIZE + ")") @RequestParam(defaultValue = "50") int limit,
+            @Parameter(description = "Optional fields to include; use 'content' to return full notes") @RequestParam(required = false) Set<String> include,
+            WebRequest webRequest,
             @AuthenticationPrincipal UserPrincipal principal) {
 
         String effectiveUserId = principal.user().getRole() == Role.ADMIN
                 ? userId : principal.getUsername();
+        NoteFilter filter = NoteFilter.builder()
+                .tags(tags)
+                .tagMode(tagMode)
+                .userId(effectiveUserId)
+                .notebookId(notebookId)
+                .modifiedSince(modifiedSince)
+                .createdFrom(createdFrom)
+                .createdBefore(createdBefore)
+                .sort(sort)
+                .build();
+
+        int pageSize = Math.clamp(limit, 1, NoteService.MAX_PAGE_SIZE);
+        NoteCursor position = NoteCursor.decode(cursor);
+        // Read before the page, so a change in between leaves the ETag older than the page and the next poll reloads
+        long stamp = noteService.getChangeStamp(effectiveUserId);
+        return NoteETagAdvice.unlessNotModified(webRequest, stamp, () -> {
+            NotePage<?> page = include != null && include.contains(INCLUDE_CONTENT)
+                    ? noteService.getNotesByFilters(filter, position, pageSize)
+                    : noteService.getNoteSummariesByFilters(filter, position, pageSize);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.hasNext()) {
+                response.header(HttpHeaders.LINK, nextLink(page.next().encode(), pageSize));
+            }
+            return response.body(page.items());
+        });
+    }
+
+    @Operation(summary = "Search notes", description = "Full-text search over note names and content, best matches first. Name matches rank above content matches. "
+            + "Supports quoted phrases, OR and -excluded terms. Users search their own notes; admins search all notes or filter by user ID. "
+            + "Each result carries a highlighted content snippet. Results are paginated with a Link header like the note listing.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Search completed",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = NoteSearchResult.class)))),
+            @ApiResponse(responseCode = "400", description = "Missing or too long query, invalid parameter type or cursor", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Database unavailable", content = @Content)
+    })
+    @GetMapping("/notes/search")
+    public ResponseEntity<List<NoteSearchResult>> searchNotes(
+            @Parameter(description = "Search terms, e.g. roadmap \"release plan\" -draft") @RequestParam String q,
+            @Parameter(description = "Filter by user ID (admin only)") @RequestParam(required = false) String userId,
+            @Parameter(description = "Opaque cursor from a previous page's next link") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of results to return (1-" + NoteService.MAX_PAGE_SIZE + ")") @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal UserPrincipal principal) {
+
+        if (q.isBlank() || q.length() > MAX_SEARCH_QUERY_LENGTH) {
+            throw new InvalidSearchQueryException(
+                    "Parameter 'q' must contain between 1 and " + MAX_SEARCH_QUERY_LENGTH + " characters");
+        }
+        String effectiveUserId = principal.user().getRole() == Role.ADMIN
+                ? userId : principal.getUsername();
+
+        int pageSize = Math.clamp(limit, 1, NoteService.MAX_PAGE_SIZE);
+        NoteSearchPage page = noteService.searchNotes(q, effectiveUserId, SearchCursor.decode(cursor), pageSize);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasNext()) {
+            response.header(HttpHeaders.LINK, nextLink(page.next().encode(), pageSize));
+        }
+        return response.body(page.items());
+    }
+
+    @Operation(summary = "Look up notes by name", description = "Typo-tolerant lookup by note name for quick switchers, closest names first. "
+            + "The query may be part of a name and may contain typos. Users look up their own notes; admins look up all notes or filter by user ID. "
+            + "Returns at most limit notes without paging.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Lookup completed",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = NoteNameMatch.class)))),
+            @ApiResponse(responseCode = "400", description = "Missing, too short or too long query, or invalid parameter type", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Database unavailable", content = @Content)
+    })
+    @GetMapping("/notes/lookup")
+    public ResponseEntity<List<NoteNameMatch>> lookupNotes(
+            @Parameter(description = "All or part of a note name, e.g. meetng notes") @RequestParam String q,
+            @Parameter(description = "Filter by user ID (admin only)") @RequestParam(required = false) String userId,
+            @Parameter(description = "Maximum number of notes to return (1-" + NoteService.MAX_LOOKUP_RESULTS + ")") @RequestParam(defaultValue = "10") int limit,
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        List<Note> notes;
-        if (tags != null || effectiveUserId != null || notebookId != null) {
-            notes = noteService.getNotesByFilters(tags, effectiveUserId, notebookId);
-        } else {
-            notes = noteService.getAllNotes();
+        String query = q.strip();
+        if (query.length() < MIN_LOOKUP_QUERY_LENGTH || query.length() > MAX_LOOKUP_QUERY_LENGTH) {
+            throw new InvalidSearchQueryException("Parameter 'q' must contain between " + MIN_LOOKUP_QUERY_LENGTH
+                    + " and " + MAX_LOOKUP_QUERY_LENGTH + " characters");
         }
-        return ResponseEntity.ok(notes);
+        String effectiveUserId = principal.user().getRole() == Role.ADMIN
+                ? userId : principal.getUsername();
+
+        return ResponseEntity.ok(noteService.lookupNotesByName(query, effectiveUserId, limit));
     }
 
-    @Operation(summary = "Get note by ID", description = "Returns a single note. Users can only access their own notes.")
+    @Operation(summary = "Export notes", description = "Streams every note the caller can see as newline-delimited JSON, one note per line. "
+            + "Admins export all notes. The response is written as rows are read, so it is safe for very large vaults.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export streamed successfully"),
+            @ApiResponse(responseCode = "503", description = "Database unavailable", content = @Content)
+    })
+    @GetMapping(value = "/notes/export", produces = NDJSON_VALUE)
+    public void exportNotes(@AuthenticationPrincipal UserPrincipal principal,
+                            HttpServletResponse response) throws IOException {
+        String effectiveUserId = principal.user().getRole() == Role.ADMIN
+                ? null : principal.getUsername();
+
+        response.setContentType(NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"notes.ndjson\"");
+
+        // Not try-with-resources: closing on failure would commit an empty 200 before the error handler runs
+        JsonGenerator generator = jsonMapper.writer()
+                .withRootValueSeparator((String) null)
+                .createGenerator(response.getOutputStream());
+        noteService.exportNotes(effectiveUserId, note -> {
+            generator.writePOJO(note);
+            generator.writeRaw('\n');
+        });
+        generator.close();
+    }
+
+    @Operation(summary = "Get note by ID", description = "Returns a single note. Users can only access their own notes. "
+            + "The ETag changes whenever the note or its tags do; send it back in If-None-Match to get 304 while the note is unchanged.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Note found"),
+            @ApiResponse(responseCode = "304", description = "Note unchanged since the ETag in If-None-Match", content = @Content),
             @ApiResponse(responseCode = "400", description = "Invalid ID format", content = @Content),
             @ApiResponse(responseCode = "403", description = "Access denied", content = @Content),
             @ApiResponse(responseCode = "404", description = "Note not found", content = @Content),
             @ApiResponse(responseCode = "503", description = "Database unavailable", content = @Content)
     })
-    @GetMapping("/notes/{id}")
+    @GetMapping(value = "/notes/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SMILE_VALUE})
     public ResponseEntity<Note> getNoteById(
             @Parameter(description = "ID of the note to retrieve") @PathVariable Long id,
+            WebRequest webRequest,
             @AuthenticationPrincipal UserPrincipal principal) {
-        Note note = noteService.getNoteById(id, principal.getUsername(), principal.user().getRole());
-        return ResponseEntity.ok(note);
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) == null) {
+            return tagged(webRequest, noteService.getNoteById(id, principal.getUsername(), principal.user().getRole()));
+        }
+        // A client holding a copy is answered from the version alone, without loading the note, tags or notebook
+        long version = noteService.getNoteVersion(id, principal.getUsername(), principal.user().getRole());
+        return NoteETagAdvice.unlessNotModified(webRequest, version, () ->
+                tagged(webRequest, noteService.getNoteById(id, principal.getUsername(), principal.user().getRole())));
+    }
+
+    @Operation(summary = "Delete notes in bulk", description = "Deletes either the notes with the given IDs or every note matching the filters, in one statement. "
+            + "Users can only delete their own notes: given IDs of other users' notes are refused, and filters only match the caller's notes. "
+            + "Admins can delete any note and filter by user ID. Filters work as in the note listing; at least one is required.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Notes deleted; lists deleted, refused and unknown IDs when deleting by ID"),
+            @ApiResponse(responseCode = "400", description = "Neither or both of IDs and filters, more than " + MAX_DELETE_IDS + " IDs, or invalid parameter type", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Database unavailable", content = @Content)
+    })
+    @DeleteMapping("/notes")
+    public ResponseEntity<NoteDeleteResult> deleteNotes(
+            @Parameter(description = "IDs of the notes to delete, at most " + MAX_DELETE_IDS) @RequestParam(required = false) List<Long> ids,
+            @Parameter(description = "Filter by tag names") @RequestParam(required = false) Set<String> tags,
+            @Parameter(description = "Whether notes need any or all of the tags") @RequestParam(defaultValue = "ANY") TagMode tagMode,
+            @Parameter(description = "Filter by user ID (admin only)") @RequestParam(required = false) String userId,
+            @Parameter(description = "Filter by notebook ID") @RequestParam(required = false) Long notebookId,
+            @Parameter(description = "Only notes modified at or after this time")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime modifiedSince,
+            @Parameter(description = "Only notes created at or after this time")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @Parameter(description = "Only notes created before this time")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore,
+            @AuthenticationPrincipal UserPrincipal principal) {
+
+        Role role = principal.user().getRole();
+        // The caller's own user ID is implied for users, so it does not count as a filter: an empty request must not
+        // delete a whole vault
+        boolean filtered = tags != null && !tags.isEmpty() || notebookId != null || modifiedSince != null
+                || createdFrom != null || createdBefore != null || role == Role.ADMIN && userId != null;
+
+        if (ids != null && !ids.isEmpty()) {
+            if (filtered) {
+                throw new InvalidDeleteRequestException("Give either 'ids' or filters, not both");
+            }
+            if (ids.size() > MAX_DELETE_IDS) {
+                throw new InvalidDeleteRequestException("Parameter 'ids' accepts at most " + MAX_DELETE_IDS + " IDs");
+            }
+            return ResponseEntity.ok(noteService.deleteNotesByIds(ids, principal.getUsername(), role));
+        }
+        if (!filtered) {
+            throw new InvalidDeleteRequestException("Parameter 'ids' or at least one filter is required");
+        }
+
+        NoteFilter filter = NoteFilter.builder()
+                .tags(tags)
+                .tagMode(tagMode)
+                .userId(role == Role.ADMIN ? userId : principal.getUsername())
+                .notebookId(notebookId)
+                .modifiedSince(modifiedSince)
+                .createdFrom(createdFrom)
+                .createdBefore(createdBefore)
+                .build();
+        return ResponseEntity.ok(noteService.deleteNotesByFilter(filter));
     }
 
     @Operation(summary = "Delete note by ID", description = "Deletes a note. Users can only delete their own notes.")
@@ -111,20 +356,134 @@ public class NoteController {
         return new ResponseEntity<>(savedNote, HttpStatus.CREATED);
     }
 
-    @Operation(summary = "Update a note", description = "Replaces all fields of an existing note. Users can only update their own notes. Tags are fully replaced, not merged.")
+    @Operation(summary = "Create notes in bulk", description = "Creates up to " + CreateNotesRequest.MAX_NOTES + " notes owned by the authenticated user in one transaction. "
+            + "Each note is validated on its own: invalid notes are reported and skipped while the rest are created. "
+            + "The response holds one result per note, in request order, with the new ID or the validation errors.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Batch processed; check the status of each result",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = NoteBatchResult.class)))),
+            @ApiResponse(responseCode = "400", description = "No notes or more than " + CreateNotesRequest.MAX_NOTES, content = @Content),
+            @ApiResponse(responseCode = "503", description = "Database unavailable", content = @Content)
+    })
+    @PostMapping("/notes/batch")
+    public ResponseEntity<List<NoteBatchResult>> createNotes(
+            @Valid @RequestBody CreateNotesRequest request,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        List<CreateNoteRequest> items = request.getNotes();
+        NoteBatchResult[] results = new NoteBatchResult[items.size()];
+        List<CreateNoteRequest> valid = new ArrayList<>(items.size());
+        List<Integer> validIndexes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Map<String, String> fieldErrors = validate(items.get(i));
+            if (fieldErrors.isEmpty()) {
+                valid.add(items.get(i));
+                validIndexes.add(i);
+            } else {
+                results[i] = NoteBatchResult.invalid(i, fieldErrors);
+            }
+        }
+
+        List<Note> created = valid.isEmpty() ? List.of() : noteService.createNotes(valid, principal.getUsername());
+        for (int i = 0; i < created.size(); i++) {
+            int index = validIndexes.get(i);
+            results[index] = NoteBatchResult.created(index, created.get(i).getId());
+        }
+        return ResponseEntity.ok(List.of(results));
+    }
+
+    @Operation(summary = "Update a note", description = "Replaces all fields of an existing note. Users can only update their own notes. Tags are fully replaced, not merged. "
+            + "Send the note's ETag in If-Match to update only if nobody changed the note since; the response carries the new ETag.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Note updated successfully"),
             @ApiResponse(responseCode = "400", description = "Validation failed or invalid ID format", content = @Content),
             @ApiResponse(responseCode = "403", description = "Access denied", content = @Content),
             @ApiResponse(responseCode = "404", description = "Note not found", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Note changed by a concurrent request", content = @Content),
+            @ApiResponse(responseCode = "412", description = "Note no longer matches the ETag in If-Match", content = @Content),
             @ApiResponse(responseCode = "503", description = "Database unavailable", content = @Content)
     })
     @PutMapping("/notes/{id}")
     public ResponseEntity<Note> updateNote(
             @Parameter(description = "ID of the note to update") @PathVariable Long id,
             @Valid @RequestBody UpdateNoteRequest request,
+            @Parameter(description = "ETags of which the note must still have one, from previous responses")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            WebRequest webRequest,
             @AuthenticationPrincipal UserPrincipal principal) {
-        Note updatedNote = noteService.updateNote(id, request, principal.getUsername(), principal.user().getRole());
-        return ResponseEntity.ok(updatedNote);
+        Note updatedNote = noteService.updateNote(id, request, expectedVersions(id, ifMatch),
+                principal.getUsername(), principal.user().getRole());
+        return tagged(webRequest, updatedNote);
+    }
+
+    @Operation(summary = "Patch a note", description = "Applies a JSON Merge Patch: only the fields sent are changed, and "
+            + "null removes a field, which only tags allow. Tags sent replace the note's tags, but only the ones that "
+            + "differ are added or removed. Users can only patch their own notes. As with PUT, If-Match makes the patch "
+            + "conditional on the note's ETag.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Note patched successfully"),
+            @ApiResponse(responseCode = "400", description = "Validation failed or invalid ID format", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Access denied", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Note not found", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Note changed by a concurrent request", content = @Content),
+            @ApiResponse(responseCode = "412", description = "Note no longer matches the ETag in If-Match", content = @Content),
+            @ApiResponse(responseCode = "415", description = "Body is not JSON, CBOR or Smile", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Database unavailable", content = @Content)
+    })
+    @PatchMapping(value = "/notes/{id}", consumes = {MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, SMILE_VALUE})
+    public ResponseEntity<Note> patchNote(
+            @Parameter(description = "ID of the note to patch") @PathVariable Long id,
+            @Valid @RequestBody PatchNoteRequest request,
+            @Parameter(description = "ETags of which the note must still have one, from previous responses")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            WebRequest webRequest,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        Note patchedNote = noteService.patchNote(id, request, expectedVersions(id, ifMatch),
+                principal.getUsername(), principal.user().getRole());
+        return tagged(webRequest, patchedNote);
+    }
+
+    private Map<String, String> validate(CreateNoteRequest item) {
+        if (item == null) {
+            return Map.of("note", "Note is required");
+        }
+        Map<String, String> fieldErrors = new HashMap<>();
+        for (ConstraintViolation<CreateNoteRequest> violation : validator.validate(item)) {
+            fieldErrors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return fieldErrors;
+    }
+
+    private static ResponseEntity<Note> tagged(WebRequest webRequest, Note note) {
+        NoteETagAdvice.tag(webRequest, note.getVersion());
+        return ResponseEntity.ok(note);
+    }
+
+    // The ETags this API hands out are quoted versions, with the format for CBOR and Smile. If-Match may list several
+    // and compares strongly, so weak or foreign ETags in it never match, but the version alone decides: a note fetched
+    // as CBOR can be saved as JSON. * matches whatever version the note has
+    private static Set<Long> expectedVersions(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Set<Long> versions = new HashSet<>();
+        for (ETag etag : ETag.parse(ifMatch)) {
+            Matcher version = ETAG_VERSION.matcher(etag.tag());
+            if (!etag.weak() && version.matches()) {
+                versions.add(Long.valueOf(version.group(1)));
+            }
+        }
+        if (versions.isEmpty()) {
+            throw new NoteVersionMismatchException(id);
+        }
+        return versions;
+    }
+
+    private static String nextLink(String cursor, int pageSize) {
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", cursor)
+                .replaceQueryParam("limit", pageSize)
+                .toUriString();
+        return "<" + next + ">; rel=\"next\"";
     }
 }
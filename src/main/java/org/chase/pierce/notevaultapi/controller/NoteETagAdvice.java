@@ -0,0 +1,107 @@
+package org.chase.pierce.notevaultapi.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Writes the ETags of {@link NoteController} once content negotiation has picked the format. The same version is
+ * other bytes as CBOR or Smile than as JSON, so its strong ETag names the format: "3" for JSON, "3-cbor" and "3-smile"
+ * otherwise. If-None-Match is answered here too, since whether a client's copy is current depends on that format.
+ */
+@RestControllerAdvice(assignableTypes = NoteController.class)
+public class NoteETagAdvice implements ResponseBodyAdvice<Object> {
+
+    private static final String VERSION = NoteETagAdvice.class.getName() + ".VERSION";
+    private static final String RESPONSE = NoteETagAdvice.class.getName() + ".RESPONSE";
+    private static final MediaType SMILE = MediaType.parseMediaType(NoteController.SMILE_VALUE);
+
+    /**
+     * Tags the response to this request with {@code version}.
+     */
+    static void tag(WebRequest request, long version) {
+        request.setAttribute(VERSION, version, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * The response for a note or listing at {@code version}. With If-None-Match, {@code response} is only built once
+     * the format shows the client's copy is stale, and the answer is 304 otherwise, so a current copy costs no more
+     * than reading the version. It may {@link #tag} a newer version than the one checked.
+     */
+    static <T> ResponseEntity<T> unlessNotModified(WebRequest request, long version,
+                                                   Supplier<ResponseEntity<T>> response) {
+        tag(request, version);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) == null) {
+            return response.get();
+        }
+        request.setAttribute(RESPONSE, response, RequestAttributes.SCOPE_REQUEST);
+        // No ETag yet: Spring would compare one before negotiation and answer 304 for whichever format it names
+        return ResponseEntity.ok().build();
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+        if (servletRequest.getAttribute(VERSION) == null) {
+            return body;
+        }
+        if (servletRequest.getAttribute(RESPONSE) instanceof Supplier<?> deferred) {
+            ETag current = etag(servletRequest, selectedContentType);
+            if (matches(request.getHeaders().getIfNoneMatch(), current)) {
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                response.getHeaders().setETag(current.formattedTag());
+                return null;
+            }
+            ResponseEntity<?> entity = (ResponseEntity<?>) deferred.get();
+            response.getHeaders().putAll(entity.getHeaders());
+            body = entity.getBody();
+        }
+        // Read after building a deferred response, which may have tagged a newer version
+        response.getHeaders().setETag(etag(servletRequest, selectedContentType).formattedTag());
+        return body;
+    }
+
+    private static ETag etag(HttpServletRequest request, MediaType contentType) {
+        String version = request.getAttribute(VERSION).toString();
+        if (contentType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+            return new ETag(version + "-cbor", false);
+        }
+        if (contentType.isCompatibleWith(SMILE)) {
+            return new ETag(version + "-smile", false);
+        }
+        return new ETag(version, false);
+    }
+
+    // If-None-Match compares weakly and * matches any current representation
+    private static boolean matches(List<String> ifNoneMatch, ETag etag) {
+        for (String value : ifNoneMatch) {
+            ETag candidate = ETag.create(value);
+            if (candidate.isWildcard() || candidate.compare(etag, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
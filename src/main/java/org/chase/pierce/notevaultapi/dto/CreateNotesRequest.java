@@ -0,0 +1,25 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Schema(description = "Request body for creating several notes at once")
+public class CreateNotesRequest {
+
+    public static final int MAX_NOTES = 500;
+
+    // Items are validated one by one so that an invalid note fails alone instead of the whole batch
+    @NotEmpty(message = "At least one note is required")
+    @Size(max = MAX_NOTES, message = "At most " + MAX_NOTES + " notes per batch")
+    @ArraySchema(arraySchema = @Schema(description = "Notes to create, at most " + MAX_NOTES,
+            requiredMode = Schema.RequiredMode.REQUIRED))
+    private List<CreateNoteRequest> notes;
+}
@@ -0,0 +1,26 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Map;
+
+@Schema(description = "Outcome of one note of a batch create, in request order")
+public record NoteBatchResult(
+        @Schema(description = "Position of the note in the request", example = "0")
+        int index,
+        @Schema(description = "201 when the note was created, 400 when it failed validation", example = "201")
+        int status,
+        @Schema(description = "ID of the created note, null when it failed", example = "1")
+        Long id,
+        @Schema(description = "Validation errors by field, null when the note was created",
+                example = "{\"name\": \"Name is required\"}")
+        Map<String, String> fields) {
+
+    public static NoteBatchResult created(int index, Long id) {
+        return new NoteBatchResult(index, 201, id, null);
+    }
+
+    public static NoteBatchResult invalid(int index, Map<String, String> fields) {
+        return new NoteBatchResult(index, 400, null, fields);
+    }
+}
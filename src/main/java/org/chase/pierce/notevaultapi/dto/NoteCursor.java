@@ -0,0 +1,45 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import org.chase.pierce.notevaultapi.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Position in the note listing: the last returned note's sort timestamp ({@code modifiedAt} or {@code createdAt},
+ * depending on the {@link NoteSort}) and its id. Clients only ever see the opaque token produced by {@link #encode()}.
+ */
+public record NoteCursor(LocalDateTime timestamp, Long id) {
+
+    /**
+     * The position before the first page, in either direction.
+     */
+    public static final NoteCursor START = new NoteCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    private static final LocalDateTime EPOCH = LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC);
+
+    public String encode() {
+        long epochMicros = ChronoUnit.MICROS.between(EPOCH, timestamp);
+        String raw = epochMicros + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static NoteCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            long epochMicros = Long.parseLong(raw.substring(0, separator));
+            long id = Long.parseLong(raw.substring(separator + 1));
+            return new NoteCursor(EPOCH.plus(epochMicros, ChronoUnit.MICROS), id);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeException | ArithmeticException ex) {
+            throw new InvalidCursorException(token);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Outcome of a bulk delete. The ID lists are only given when notes were deleted by ID.")
+public record NoteDeleteResult(
+        @Schema(description = "Number of notes deleted", example = "2")
+        long deletedCount,
+        @Schema(description = "IDs of the deleted notes, in request order", example = "[1, 2]")
+        List<Long> deleted,
+        @Schema(description = "IDs of notes that exist but belong to another user, in request order", example = "[3]")
+        List<Long> refused,
+        @Schema(description = "IDs that match no note, in request order", example = "[4]")
+        List<Long> notFound) {
+
+    public static NoteDeleteResult ofIds(List<Long> deleted, List<Long> refused, List<Long> notFound) {
+        return new NoteDeleteResult(deleted.size(), deleted, refused, notFound);
+    }
+
+    public static NoteDeleteResult ofCount(long deletedCount) {
+        return new NoteDeleteResult(deletedCount, null, null, null);
+    }
+}
@@ -0,0 +1,8 @@
+package org.chase.pierce.notevaultapi.dto;
+
+/**
+ * One requested note from the delete statement: its id, whether the caller may delete it and whether it was deleted.
+ * A note the caller may delete that was not deleted was removed concurrently.
+ */
+public record NoteDeletionRow(Long id, Boolean allowed, Boolean deleted) {
+}
@@ -0,0 +1,32 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Filters and order for the note listing. Every filter is optional and unset filters match everything.
+ *
+ * @param tags          notes with these tag names
+ * @param tagMode       whether notes need any or all of {@code tags}, any when not given
+ * @param userId        notes owned by this user
+ * @param notebookId    notes in this notebook
+ * @param modifiedSince notes modified at or after this time
+ * @param createdFrom   notes created at or after this time
+ * @param createdBefore notes created before this time
+ * @param sort          listing order, newest modified first when not given
+ */
+@Builder
+public record NoteFilter(Set<String> tags, TagMode tagMode, String userId, Long notebookId, LocalDateTime modifiedSince,
+                         LocalDateTime createdFrom, LocalDateTime createdBefore, NoteSort sort) {
+
+    public static final NoteFilter NONE = NoteFilter.builder().build();
+
+    public NoteFilter {
+        tags = tags == null ? Set.of() : Set.copyOf(tags);
+        tagMode = tagMode == null ? TagMode.ANY : tagMode;
+        userId = userId == null || userId.isBlank() ? null : userId;
+        sort = sort == null ? NoteSort.MODIFIED_DESC : sort;
+    }
+}
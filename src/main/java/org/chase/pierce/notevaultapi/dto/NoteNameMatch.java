@@ -0,0 +1,17 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "A note whose name is close to a lookup query, closest first")
+public record NoteNameMatch(
+        @Schema(description = "ID of the note", example = "1")
+        Long id,
+        @Schema(description = "Name of the note", example = "Meeting Notes")
+        String name,
+        @Schema(description = "When the note was last modified")
+        LocalDateTime modifiedAt,
+        @Schema(description = "Trigram word similarity between the query and the name, from 0 to 1", example = "0.8333333")
+        Float score) {
+}
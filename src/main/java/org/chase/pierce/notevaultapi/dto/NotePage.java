@@ -0,0 +1,13 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. {@code next} is {@code null} on the last page.
+ */
+public record NotePage<T>(List<T> items, NoteCursor next) {
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
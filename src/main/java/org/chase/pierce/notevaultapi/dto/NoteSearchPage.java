@@ -0,0 +1,13 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import java.util.List;
+
+/**
+ * One page of search results. {@code next} is {@code null} on the last page.
+ */
+public record NoteSearchPage(List<NoteSearchResult> items, SearchCursor next) {
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
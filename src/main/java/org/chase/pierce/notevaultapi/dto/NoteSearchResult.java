@@ -0,0 +1,14 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "A note matching a search, best matches first")
+public record NoteSearchResult(
+        @Schema(description = "The matching note, without its content")
+        NoteSummary note,
+        @Schema(description = "Relevance of the match; name matches score higher than content matches", example = "0.6079271")
+        float rank,
+        @Schema(description = "Fragments of the content around the matched terms, highlighted with <mark>",
+                example = "Discuss the Q3 <mark>roadmap</mark> with the team")
+        String snippet) {
+}
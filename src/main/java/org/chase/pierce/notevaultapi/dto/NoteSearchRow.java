@@ -0,0 +1,7 @@
+package org.chase.pierce.notevaultapi.dto;
+
+/**
+ * One match from the full-text search query: the note id, its {@code ts_rank} and a highlighted content snippet.
+ */
+public record NoteSearchRow(Long id, Float rank, String snippet) {
+}
@@ -0,0 +1,31 @@
+package org.chase.pierce.notevaultapi.dto;
+
+/**
+ * Orders of the note listing. Ties on the timestamp are broken by id in the same direction, which makes every
+ * order total and lets {@link NoteCursor} resume it.
+ */
+public enum NoteSort {
+    MODIFIED_DESC("modifiedAt", true),
+    MODIFIED_ASC("modifiedAt", false),
+    CREATED_DESC("createdAt", true),
+    CREATED_ASC("createdAt", false);
+
+    private final String attribute;
+    private final boolean descending;
+
+    NoteSort(String attribute, boolean descending) {
+        this.attribute = attribute;
+        this.descending = descending;
+    }
+
+    /**
+     * The {@code Note} timestamp attribute this order sorts on.
+     */
+    public String attribute() {
+        return attribute;
+    }
+
+    public boolean descending() {
+        return descending;
+    }
+}
@@ -0,0 +1,34 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+@Schema(description = "A note without its content, as returned by list endpoints")
+public record NoteSummary(
+        @Schema(description = "Unique identifier of the note", example = "1")
+        Long id,
+        @Schema(description = "Name of the note", example = "Meeting Notes")
+        String name,
+        @Schema(description = "ID of the user who owns the note", example = "user123")
+        String userId,
+        @Schema(description = "Notebook this note belongs to")
+        NotebookRef notebook,
+        @Schema(description = "Tags associated with this note")
+        Set<TagRef> tags,
+        @Schema(description = "Timestamp when the note was created", example = "2025-01-15T10:30:00")
+        LocalDateTime createdAt,
+        @Schema(description = "Timestamp when the note was last modified", example = "2025-01-15T14:45:00")
+        LocalDateTime modifiedAt) {
+
+    public record NotebookRef(
+            @Schema(description = "Unique identifier of the notebook", example = "1") Long id,
+            @Schema(description = "Name of the notebook", example = "Work Notes") String name) {
+    }
+
+    public record TagRef(
+            @Schema(description = "Unique identifier of the tag", example = "1") Long id,
+            @Schema(description = "Name of the tag", example = "meeting") String name) {
+    }
+}
@@ -0,0 +1,22 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+
+/**
+ * One row of the summary projection: a note's list columns joined with at most one of its tags.
+ * Deliberately has no content column, so list queries never read note bodies.
+ */
+public record NoteSummaryRow(Long id, String name, String userId, Long notebookId, String notebookName,
+                             LocalDateTime createdAt, LocalDateTime modifiedAt, Long tagId, String tagName) {
+
+    public NoteSummary toSummary() {
+        NoteSummary.NotebookRef notebook = notebookId == null
+                ? null : new NoteSummary.NotebookRef(notebookId, notebookName);
+        return new NoteSummary(id, name, userId, notebook, new LinkedHashSet<>(), createdAt, modifiedAt);
+    }
+
+    public NoteSummary.TagRef tag() {
+        return new NoteSummary.TagRef(tagId, tagName);
+    }
+}
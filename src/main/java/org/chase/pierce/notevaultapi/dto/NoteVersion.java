@@ -0,0 +1,7 @@
+package org.chase.pierce.notevaultapi.dto;
+
+/**
+ * Owner and version of a note, which is all a conditional read needs to answer 304 Not Modified.
+ */
+public record NoteVersion(String userId, long version) {
+}
@@ -0,0 +1,30 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A JSON Merge Patch (RFC 7396) for a note. Each field is null when the patch leaves it out and an Optional when the
+ * patch sets it, empty for an explicit null, which removes the value: name and content cannot be removed, tags can.
+ */
+@Getter
+@Setter
+@Schema(description = "Partial update of a note as a JSON Merge Patch: only the fields sent are changed")
+public class PatchNoteRequest {
+
+    @Schema(description = "New name of the note", example = "Renamed Meeting Notes")
+    private Optional<@NotBlank(message = "Name is required")
+                     @Size(max = 255, message = "Name must be 255 characters or fewer") String> name;
+
+    @Schema(description = "New content of the note (safe HTML allowed)", example = "<p>Revised discussion points</p>")
+    private Optional<@NotBlank(message = "Content is required") String> content;
+
+    @Schema(description = "Tags the note should have afterwards; null removes them all", example = "[\"work\", \"important\"]")
+    private Optional<Set<String>> tags;
+}
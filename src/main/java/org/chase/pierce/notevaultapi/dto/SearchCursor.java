@@ -0,0 +1,42 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import org.chase.pierce.notevaultapi.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a search result listing, ordered by {@code (rank, id)} descending. The rank is the exact
+ * {@code ts_rank} value of the last row, so the next page continues strictly after it.
+ */
+public record SearchCursor(float rank, long id) {
+
+    /**
+     * Sorts after every match, so the first page runs the same keyset query as every other page.
+     */
+    public static final SearchCursor START = new SearchCursor(Float.POSITIVE_INFINITY, Long.MAX_VALUE);
+
+    public String encode() {
+        // Float.toString round-trips exactly, in Java and in PostgreSQL's real parser
+        String raw = rank + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            float rank = Float.parseFloat(raw.substring(0, separator));
+            long id = Long.parseLong(raw.substring(separator + 1));
+            if (Float.isNaN(rank)) {
+                throw new InvalidCursorException(token);
+            }
+            return new SearchCursor(rank, id);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new InvalidCursorException(token);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.chase.pierce.notevaultapi.dto;
+
+/**
+ * How a tag filter with several tags matches notes.
+ */
+public enum TagMode {
+    /**
+     * Notes with at least one of the tags.
+     */
+    ANY,
+    /**
+     * Notes with every one of the tags.
+     */
+    ALL
+}
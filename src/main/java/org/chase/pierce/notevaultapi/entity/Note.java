@@ -1,10 +1,13 @@
 package org.chase.pierce.notevaultapi.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -17,8 +20,15 @@ import java.util.Set;
 @Schema(description = "A note containing text content that can be tagged and organized into notebooks")
 public class Note {
 
+    /**
+     * Ids reserved per sequence call, so new notes need no insert round trip to learn their id. Must match the
+     * INCREMENT BY of ud.note_id_seq.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_id")
+    @SequenceGenerator(name = "note_id", schema = "ud", sequenceName = "note_id_seq", allocationSize = ID_ALLOCATION_SIZE)
     @Schema(description = "Unique identifier of the note", example = "1", accessMode = Schema.AccessMode.READ_ONLY)
     private Long id;
 
@@ -31,7 +41,7 @@ public class Note {
     private String content;
 
     @Column(name = "user_id", nullable = false)
-    @Schema(description = "ID of the user who last modified the note", example = "user123")
+    @Schema(description = "ID of the user who owns the note", example = "user123")
     private String userId;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -40,7 +50,9 @@ public class Note {
     @Schema(description = "Notebook this note belongs to")
     private Notebook notebook;
 
+    // note_tags.note_id is ON DELETE CASCADE, so deleting notes, one or in bulk, never deletes their tag rows first
     @ManyToMany(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinTable(
             name = "note_tags",
             schema = "ud",
@@ -51,11 +63,18 @@ public class Note {
     @Schema(description = "Tags associated with this note")
     private Set<Tag> tags = new HashSet<>();
 
+    // Incremented on every change to the note or its tags; served as the note's ETag
+    @Version
+    @Column(nullable = false)
+    @JsonIgnore
+    @Schema(hidden = true)
+    private long version;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     @Schema(description = "Timestamp when the note was created", example = "2025-01-15T10:30:00", accessMode = Schema.AccessMode.READ_ONLY)
     private LocalDateTime createdAt;
 
-    @Column(name = "modified_at")
+    @Column(name = "modified_at", nullable = false)
     @Schema(description = "Timestamp when the note was last modified", example = "2025-01-15T14:45:00", accessMode = Schema.AccessMode.READ_ONLY)
     private LocalDateTime modifiedAt;
 
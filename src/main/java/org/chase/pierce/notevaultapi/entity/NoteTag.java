@@ -0,0 +1,41 @@
+package org.chase.pierce.notevaultapi.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+
+/**
+ * Read-only view of the note_tags join table for queries that aggregate tag assignments without touching the note
+ * or tags tables. Assignments are only ever written through {@link Note#getTags()}.
+ */
+@Getter
+@Entity
+@Immutable
+@IdClass(NoteTag.Key.class)
+@Table(name = "note_tags", schema = "ud")
+public class NoteTag {
+
+    @Id
+    @Column(name = "note_id")
+    private Long noteId;
+
+    @Id
+    @Column(name = "tag_id")
+    private Long tagId;
+
+    @Getter
+    @NoArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long noteId;
+        private Long tagId;
+    }
+}
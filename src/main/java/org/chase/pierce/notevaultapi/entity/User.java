@@ -5,11 +5,13 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.chase.pierce.notevaultapi.security.UserAccountListener;
 
 @Getter
 @Setter
 @Entity
 @Table(name = "users", schema = "auth")
+@EntityListeners(UserAccountListener.class)
 @Schema(description = "A registered user account")
 public class User {
 
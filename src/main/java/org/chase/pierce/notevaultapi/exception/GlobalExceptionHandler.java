@@ -3,8 +3,10 @@ package org.chase.pierce.notevaultapi.exception;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -50,6 +52,28 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidCursor(InvalidCursorException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now().toString());
+        response.put("status", HttpStatus.BAD_REQUEST.value());
+        response.put("error", "Invalid parameter");
+        response.put("message", "Invalid value for parameter 'cursor'. Use the next link from a previous page.");
+
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler({InvalidSearchQueryException.class, InvalidDeleteRequestException.class})
+    public ResponseEntity<Map<String, Object>> handleInvalidParameter(RuntimeException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now().toString());
+        response.put("status", HttpStatus.BAD_REQUEST.value());
+        response.put("error", "Invalid parameter");
+        response.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(NoteNotFoundException.class)
     public ResponseEntity<Map<String, Object>> handleNoteNotFound(NoteNotFoundException ex) {
         Map<String, Object> response = new HashMap<>();
@@ -61,8 +85,32 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
     }
 
-    @ExceptionHandler(DataAccessException.class)
-    public ResponseEntity<Map<String, Object>> handleDatabaseErrors(DataAccessException ex) {
+    @ExceptionHandler(NoteVersionMismatchException.class)
+    public ResponseEntity<Map<String, Object>> handleVersionMismatch(NoteVersionMismatchException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now().toString());
+        response.put("status", HttpStatus.PRECONDITION_FAILED.value());
+        response.put("error", "Precondition failed");
+        response.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(response, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    // Two requests changed the same note at once and this one lost; retrying with fresh data succeeds
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleConcurrentChange(OptimisticLockingFailureException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now().toString());
+        response.put("status", HttpStatus.CONFLICT.value());
+        response.put("error", "Conflict");
+        response.put("message", "The note was changed by another request. Reload it and try again.");
+
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    // A transaction that cannot get a connection, e.g. after waiting out the pool timeout, fails before any query
+    @ExceptionHandler({DataAccessException.class, CannotCreateTransactionException.class})
+    public ResponseEntity<Map<String, Object>> handleDatabaseErrors(RuntimeException ex) {
         log.error("Database error: {}", ex.getMessage(), ex);
 
         Map<String, Object> response = new HashMap<>();
@@ -0,0 +1,8 @@
+package org.chase.pierce.notevaultapi.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super("Invalid pagination cursor: " + cursor);
+    }
+}
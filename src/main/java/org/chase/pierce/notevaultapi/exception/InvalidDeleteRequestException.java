@@ -0,0 +1,8 @@
+package org.chase.pierce.notevaultapi.exception;
+
+public class InvalidDeleteRequestException extends RuntimeException {
+
+    public InvalidDeleteRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package org.chase.pierce.notevaultapi.exception;
+
+public class InvalidSearchQueryException extends RuntimeException {
+
+    public InvalidSearchQueryException(String message) {
+        super(message);
+    }
+}
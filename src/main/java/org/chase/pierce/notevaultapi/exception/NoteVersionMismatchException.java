@@ -0,0 +1,8 @@
+package org.chase.pierce.notevaultapi.exception;
+
+public class NoteVersionMismatchException extends RuntimeException {
+
+    public NoteVersionMismatchException(Long id) {
+        super("Note with id " + id + " has changed since the version in If-Match");
+    }
+}
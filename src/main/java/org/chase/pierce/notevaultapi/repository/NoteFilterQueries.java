@@ -0,0 +1,27 @@
+package org.chase.pierce.notevaultapi.repository;
+
+import org.chase.pierce.notevaultapi.dto.NoteCursor;
+import org.chase.pierce.notevaultapi.dto.NoteFilter;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Note queries built from a {@link NoteFilter} at runtime, so new filters need no new repository methods.
+ */
+public interface NoteFilterQueries {
+
+    /**
+     * Returns the (sort timestamp, id) keys of the notes matching {@code filter} that come after {@code after} in
+     * the filter's order. {@code tagIds} are the resolved ids of {@code filter.tags()}; the names themselves are
+     * not read here.
+     */
+    List<NoteCursor> findPageKeys(NoteFilter filter, Set<Long> tagIds, NoteCursor after, Limit limit);
+
+    /**
+     * Deletes every note matching {@code filter} in one statement and returns how many were deleted. The sort is
+     * ignored. Tag assignments go with the notes through the foreign key's ON DELETE CASCADE.
+     */
+    int deleteByFilter(NoteFilter filter, Set<Long> tagIds);
+}
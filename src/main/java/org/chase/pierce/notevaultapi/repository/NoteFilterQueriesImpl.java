@@ -0,0 +1,139 @@
+package org.chase.pierce.notevaultapi.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CommonAbstractCriteria;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaDelete;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.chase.pierce.notevaultapi.dto.NoteCursor;
+import org.chase.pierce.notevaultapi.dto.NoteFilter;
+import org.chase.pierce.notevaultapi.dto.NoteSort;
+import org.chase.pierce.notevaultapi.dto.TagMode;
+import org.chase.pierce.notevaultapi.entity.Note;
+import org.chase.pierce.notevaultapi.entity.NoteTag;
+import org.chase.pierce.notevaultapi.entity.Tag;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds the queries one predicate per filter that is set. Whatever the combination, the page key statement has the
+ * same shape: equality and range conditions on note columns, a subquery on note_tags for tags, a keyset
+ * condition and {@code ORDER BY timestamp, id} in one direction, so a (column, timestamp, id) index can serve both the
+ * filter and the order.
+ */
+class NoteFilterQueriesImpl implements NoteFilterQueries {
+
+    private final EntityManager entityManager;
+
+    NoteFilterQueriesImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<NoteCursor> findPageKeys(NoteFilter filter, Set<Long> tagIds, NoteCursor after, Limit limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<NoteCursor> query = cb.createQuery(NoteCursor.class);
+        Root<Note> note = query.from(Note.class);
+
+        NoteSort sort = filter.sort();
+        Path<LocalDateTime> timestamp = note.get(sort.attribute());
+        Path<Long> id = note.get("id");
+
+        List<Predicate> predicates = filterPredicates(cb, query, note, filter, tagIds);
+        if (!NoteCursor.START.equals(after)) {
+            predicates.add(afterCursor(cb, sort, timestamp, id, after));
+        }
+
+        query.select(cb.construct(NoteCursor.class, timestamp, id))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(sort.descending()
+                        ? List.of(cb.desc(timestamp), cb.desc(id))
+                        : List.of(cb.asc(timestamp), cb.asc(id)));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit.max())
+                .getResultList();
+    }
+
+    @Override
+    public int deleteByFilter(NoteFilter filter, Set<Long> tagIds) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaDelete<Note> delete = cb.createCriteriaDelete(Note.class);
+        Root<Note> note = delete.from(Note.class);
+        delete.where(filterPredicates(cb, delete, note, filter, tagIds).toArray(Predicate[]::new));
+        return entityManager.createQuery(delete).executeUpdate();
+    }
+
+    private static List<Predicate> filterPredicates(CriteriaBuilder cb, CommonAbstractCriteria query, Root<Note> note,
+                                                    NoteFilter filter, Set<Long> tagIds) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (!tagIds.isEmpty()) {
+            // Every one of a single tag is any one of it, and EXISTS can stop at the first page
+            predicates.add(filter.tagMode() == TagMode.ALL && tagIds.size() > 1
+                    ? hasAllTags(cb, query, note, tagIds)
+                    : hasAnyTag(cb, query, note, tagIds));
+        }
+        if (filter.userId() != null) {
+            predicates.add(cb.equal(note.get("userId"), filter.userId()));
+        }
+        if (filter.notebookId() != null) {
+            predicates.add(cb.equal(note.get("notebook").get("id"), filter.notebookId()));
+        }
+        if (filter.modifiedSince() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(note.get("modifiedAt"), filter.modifiedSince()));
+        }
+        if (filter.createdFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(note.get("createdAt"), filter.createdFrom()));
+        }
+        if (filter.createdBefore() != null) {
+            predicates.add(cb.lessThan(note.get("createdAt"), filter.createdBefore()));
+        }
+        return predicates;
+    }
+
+    // EXISTS rather than a join, so a note with several matching tags is returned once without a DISTINCT
+    private static Predicate hasAnyTag(CriteriaBuilder cb, CommonAbstractCriteria query, Root<Note> note,
+                                       Set<Long> tagIds) {
+        Subquery<Integer> subquery = query.subquery(Integer.class);
+        Root<Note> tagged = subquery.correlate(note);
+        Join<Note, Tag> tag = tagged.join("tags");
+        subquery.select(cb.literal(1)).where(tag.get("id").in(tagIds));
+        return cb.exists(subquery);
+    }
+
+    // Grouped over note_tags alone, so the database returns only notes carrying every tag. This reads every
+    // assignment of the requested tags before the first row, so it costs more the more popular the tags are. A plain
+    // count is a distinct count here, since (note_id, tag_id) is the primary key, and lets PostgreSQL hash the groups
+    // instead of sorting them
+    private static Predicate hasAllTags(CriteriaBuilder cb, CommonAbstractCriteria query, Root<Note> note,
+                                        Set<Long> tagIds) {
+        Subquery<Long> subquery = query.subquery(Long.class);
+        Root<NoteTag> assignment = subquery.from(NoteTag.class);
+        Path<Long> noteId = assignment.get("noteId");
+        subquery.select(noteId)
+                .where(assignment.get("tagId").in(tagIds))
+                .groupBy(noteId)
+                .having(cb.equal(cb.count(assignment.get("tagId")), (long) tagIds.size()));
+        return note.get("id").in(subquery);
+    }
+
+    // Rows strictly after the cursor in the sort direction, written as an OR so it stays an index condition
+    private static Predicate afterCursor(CriteriaBuilder cb, NoteSort sort, Path<LocalDateTime> timestamp,
+                                         Path<Long> id, NoteCursor after) {
+        if (sort.descending()) {
+            return cb.or(cb.lessThan(timestamp, after.timestamp()),
+                    cb.and(cb.equal(timestamp, after.timestamp()), cb.lessThan(id, after.id())));
+        }
+        return cb.or(cb.greaterThan(timestamp, after.timestamp()),
+                cb.and(cb.equal(timestamp, after.timestamp()), cb.greaterThan(id, after.id())));
+    }
+}
@@ -1,47 +1,133 @@
 package org.chase.pierce.notevaultapi.repository;
 
+import org.chase.pierce.notevaultapi.dto.NoteDeletionRow;
+import org.chase.pierce.notevaultapi.dto.NoteNameMatch;
+import org.chase.pierce.notevaultapi.dto.NoteSearchRow;
+import org.chase.pierce.notevaultapi.dto.NoteSummaryRow;
+import org.chase.pierce.notevaultapi.dto.NoteVersion;
+import jakarta.persistence.QueryHint;
 import org.chase.pierce.notevaultapi.entity.Note;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
+import java.util.stream.Stream;
 
+// Listing pages come from NoteFilterQueries: they select only the (timestamp, id) keys, and the notes are then loaded
+// by id. Fetching the tags collection in the same statement would force Hibernate to paginate in memory.
 @Repository
-public interface NoteRepository extends JpaRepository<Note, Long> {
+public interface NoteRepository extends JpaRepository<Note, Long>, NoteFilterQueries {
+
+    String EXPORT_FETCH_SIZE = "500";
+
+    // Full-text search, best match first with the id as tie-breaker. The inner query ranks every match through the
+    // GIN index on search_vector and keeps one page; ts_headline then runs only for that page, on the content with
+    // its markup stripped.
+    String SEARCH = "SELECT hit.id AS id, hit.rank AS rank, "
+            + "btrim(ts_headline('english', regexp_replace(coalesce(n.content, ''), '<[^>]*>', ' ', 'g'), hit.query, "
+            + "'StartSel=<mark>, StopSel=</mark>, MaxFragments=2, MaxWords=20, MinWords=5')) AS snippet "
+            + "FROM (SELECT n.id AS id, ts_rank(n.search_vector, q.query) AS rank, q.query AS query "
+            + "FROM ud.note n, websearch_to_tsquery('english', :query) AS q(query) "
+            + "WHERE n.search_vector @@ q.query AND ";
+    String SEARCH_AFTER_CURSOR = "(ts_rank(n.search_vector, q.query), n.id) < (CAST(:rank AS real), :id) "
+            + "ORDER BY rank DESC, n.id DESC LIMIT :limit) hit "
+            + "JOIN ud.note n ON n.id = hit.id ORDER BY hit.rank DESC, hit.id DESC";
+
+    // Name lookup, closest first. The <% operator is what the GIN trigram index on name can serve; it compares
+    // against pg_trgm.word_similarity_threshold, so callers set that in the same transaction first. Ties go to the
+    // name closest as a whole, then to the most recently modified note.
+    String LOOKUP_BY_NAME = "SELECT n.id AS id, n.name AS name, n.modified_at AS modifiedAt, "
+            + "word_similarity(:query, n.name) AS score FROM ud.note n WHERE :query <% n.name ";
+    String CLOSEST_FIRST = "ORDER BY score DESC, similarity(:query, n.name) DESC, n.modified_at DESC, n.id DESC "
+            + "LIMIT :limit";
+
+    // Delete with the ownership check in the same statement: target holds every requested note that exists and
+    // whether the caller may delete it, the DELETE removes the allowed ones and note_tags rows go by ON DELETE CASCADE.
+    // Joining back to what was actually deleted keeps a row removed concurrently from being reported as deleted here.
+    String DELETE_ALLOWED = "WITH target AS (SELECT n.id AS id, n.user_id = :userId OR :admin AS allowed "
+            + "FROM ud.note n WHERE n.id = ANY(CAST(:ids AS bigint[]))), "
+            + "deleted AS (DELETE FROM ud.note n USING target t WHERE n.id = t.id AND t.allowed RETURNING n.id) "
+            + "SELECT t.id AS id, t.allowed AS allowed, d.id IS NOT NULL AS deleted "
+            + "FROM target t LEFT JOIN deleted d ON d.id = t.id";
 
     @EntityGraph(attributePaths = {"tags", "notebook"})
-    List<Note> findAll();
+    List<Note> findAllById(Iterable<Long> ids);
 
     @EntityGraph(attributePaths = {"tags", "notebook"})
     Optional<Note> findById(Long id);
 
-    @EntityGraph(attributePaths = {"tags", "notebook"})
-    List<Note> findByUserId(String userId);
+    // For updates, which replace the tags without reading them: one row, and the notebook the response carries
+    @EntityGraph(attributePaths = {"notebook"})
+    Optional<Note> findWithNotebookById(Long id);
 
-    @EntityGraph(attributePaths = {"tags", "notebook"})
-    List<Note> findByNotebookId(Long notebookId);
+    @Query("SELECT new org.chase.pierce.notevaultapi.dto.NoteVersion(n.userId, n.version) FROM Note n WHERE n.id = :id")
+    Optional<NoteVersion> findVersionById(@Param("id") Long id);
 
-    @EntityGraph(attributePaths = {"tags", "notebook"})
-    @Query("SELECT DISTINCT n FROM Note n JOIN n.tags t WHERE t.name IN :tagNames")
-    List<Note> findByTagNames(@Param("tagNames") Set<String> tagNames);
+    // The owner's folded stamp plus their changes not folded yet, see V7__note_change_tracking.sql
+    @Query(value = "SELECT coalesce((SELECT stamp FROM ud.note_change WHERE user_id = :userId), 0) "
+            + "+ (SELECT coalesce(sum(changes), 0) FROM ud.note_change_log WHERE user_id = :userId)", nativeQuery = true)
+    long findChangeStampByUserId(@Param("userId") String userId);
 
-    @EntityGraph(attributePaths = {"tags", "notebook"})
-    @Query("SELECT DISTINCT n FROM Note n JOIN n.tags t WHERE t.name IN :tagNames AND n.userId = :userId")
-    List<Note> findByTagNamesAndUserId(@Param("tagNames") Set<String> tagNames, @Param("userId") String userId);
+    // The log is summed whole, which stays cheap because compactChangeLog keeps it to the changes since its last run
+    @Query(value = "SELECT coalesce((SELECT stamp FROM ud.note_change WHERE user_id = ''), 0) "
+            + "+ (SELECT coalesce(sum(changes), 0) FROM ud.note_change_log)", nativeQuery = true)
+    long findChangeStampOfAllNotes();
 
-    @EntityGraph(attributePaths = {"tags", "notebook"})
-    @Query("SELECT DISTINCT n FROM Note n JOIN n.tags t WHERE t.name IN :tagNames AND n.notebook.id = :notebookId")
-    List<Note> findByTagNamesAndNotebookId(@Param("tagNames") Set<String> tagNames, @Param("notebookId") Long notebookId);
+    // Folds the change log into ud.note_change without moving any stamp, and returns how many log rows it folded
+    @Query(value = "SELECT ud.compact_note_changes()", nativeQuery = true)
+    long compactChangeLog();
+
+    @Query("SELECT new org.chase.pierce.notevaultapi.dto.NoteSummaryRow("
+            + "n.id, n.name, n.userId, nb.id, nb.name, n.createdAt, n.modifiedAt, t.id, t.name) "
+            + "FROM Note n LEFT JOIN n.notebook nb LEFT JOIN n.tags t WHERE n.id IN :ids")
+    List<NoteSummaryRow> findSummaryRowsByIdIn(@Param("ids") Collection<Long> ids);
 
+    // Export streams run on a server-side cursor: rows arrive EXPORT_FETCH_SIZE at a time and are never
+    // dirty-checked. Ordering by id keeps each note's joined tag rows adjacent while scrolling.
     @EntityGraph(attributePaths = {"tags", "notebook"})
-    List<Note> findByUserIdAndNotebookId(String userId, Long notebookId);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT n FROM Note n ORDER BY n.id")
+    Stream<Note> streamAll();
 
     @EntityGraph(attributePaths = {"tags", "notebook"})
-    @Query("SELECT DISTINCT n FROM Note n JOIN n.tags t WHERE t.name IN :tagNames AND n.userId = :userId AND n.notebook.id = :notebookId")
-    List<Note> findByTagNamesAndUserIdAndNotebookId(@Param("tagNames") Set<String> tagNames, @Param("userId") String userId, @Param("notebookId") Long notebookId);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT n FROM Note n WHERE n.userId = :userId ORDER BY n.id")
+    Stream<Note> streamByUserId(@Param("userId") String userId);
+
+    @Query(value = SEARCH + SEARCH_AFTER_CURSOR, nativeQuery = true)
+    List<NoteSearchRow> search(@Param("query") String query,
+                               @Param("rank") float rank, @Param("id") long id, @Param("limit") int limit);
+
+    @Query(value = SEARCH + "n.user_id = :userId AND " + SEARCH_AFTER_CURSOR, nativeQuery = true)
+    List<NoteSearchRow> searchByUserId(@Param("query") String query, @Param("userId") String userId,
+                                       @Param("rank") float rank, @Param("id") long id, @Param("limit") int limit);
+
+    @Query(value = "SELECT set_config('pg_trgm.word_similarity_threshold', CAST(:threshold AS text), true)",
+            nativeQuery = true)
+    String setWordSimilarityThreshold(@Param("threshold") float threshold);
+
+    // Not @Modifying: the statement returns rows, so it runs as a query
+    @Query(value = DELETE_ALLOWED, nativeQuery = true)
+    List<NoteDeletionRow> deleteAllowedByIdIn(@Param("ids") Long[] ids, @Param("userId") String userId,
+                                              @Param("admin") boolean admin);
+
+    @Query(value = LOOKUP_BY_NAME + CLOSEST_FIRST, nativeQuery = true)
+    List<NoteNameMatch> lookupByName(@Param("query") String query, @Param("limit") int limit);
+
+    @Query(value = LOOKUP_BY_NAME + "AND n.user_id = :userId " + CLOSEST_FIRST, nativeQuery = true)
+    List<NoteNameMatch> lookupByNameAndUserId(@Param("query") String query, @Param("userId") String userId,
+                                              @Param("limit") int limit);
 }
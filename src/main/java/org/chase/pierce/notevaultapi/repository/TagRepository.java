@@ -2,12 +2,21 @@ package org.chase.pierce.notevaultapi.repository;
 
 import org.chase.pierce.notevaultapi.entity.Tag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface TagRepository extends JpaRepository<Tag, Long> {
 
-    Optional<Tag> findByName(String name);
+    List<Tag> findByNameIn(Collection<String> names);
+
+    // Names another transaction inserted first are skipped rather than failing on the unique constraint,
+    // so they are missing from the returned rows. Inserting in name order keeps concurrent writers from deadlocking.
+    @Query(value = "INSERT INTO ud.tags (name) SELECT name FROM unnest(CAST(:names AS text[])) AS name ORDER BY name "
+            + "ON CONFLICT (name) DO NOTHING RETURNING id, name", nativeQuery = true)
+    List<Tag> insertIfAbsent(@Param("names") String[] names);
 }
@@ -0,0 +1,100 @@
+package org.chase.pierce.notevaultapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Remembers successful password checks for a short time so clients sending HTTP Basic credentials on every
+ * request pay for BCrypt once per TTL instead of once per request.
+ * <p>
+ * Entries are keyed by an HMAC over the stored hash and the presented password, using a key generated at
+ * startup, so the plaintext is never held. Because the stored hash is part of the key, changing a password
+ * orphans every entry for the old one immediately. The {@code enabled} flag is not cached here at all: it is
+ * checked against the freshly loaded account before the password is compared. Only matches are cached, so
+ * wrong passwords always cost a full BCrypt comparison.
+ */
+public class CachingPasswordEncoder implements PasswordEncoder {
+
+    public static final String CACHE_NAME = "credentials";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final PasswordEncoder delegate;
+    private final SecretKeySpec key;
+    private final Cache<String, Boolean> verified;
+
+    public CachingPasswordEncoder(PasswordEncoder delegate, long maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, CACHE_NAME);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null || encodedPassword.isEmpty()) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+        String fingerprint = fingerprint(rawPassword, encodedPassword);
+        if (verified.getIfPresent(fingerprint) != null) {
+            return true;
+        }
+        boolean matches = delegate.matches(rawPassword, encodedPassword);
+        if (matches) {
+            verified.put(fingerprint, Boolean.TRUE);
+        }
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Drops every remembered verification, forcing the next request from each client back through BCrypt.
+     */
+    public void invalidateAll() {
+        verified.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return verified.stats();
+    }
+
+    private String fingerprint(CharSequence rawPassword, String encodedPassword) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            mac.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(mac.doFinal());
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(HMAC_ALGORITHM + " is not available", ex);
+        }
+    }
+}
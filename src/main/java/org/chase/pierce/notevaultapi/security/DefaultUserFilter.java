@@ -8,7 +8,6 @@ import org.jspecify.annotations.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -17,10 +16,10 @@ import java.io.IOException;
 @Component
 public class DefaultUserFilter extends OncePerRequestFilter {
 
-    private final UserDetailsService userDetailsService;
+    private final DefaultUserSnapshot defaultUserSnapshot;
 
-    public DefaultUserFilter(UserDetailsService userDetailsService) {
-        this.userDetailsService = userDetailsService;
+    public DefaultUserFilter(DefaultUserSnapshot defaultUserSnapshot) {
+        this.defaultUserSnapshot = defaultUserSnapshot;
     }
 
     @Override
@@ -31,7 +30,7 @@ public class DefaultUserFilter extends OncePerRequestFilter {
         if (SecurityContextHolder.getContext().getAuthentication() == null
                 && request.getHeader("Authorization") == null) {
 
-            UserDetails defaultUser = userDetailsService.loadUserByUsername("default_user");
+            UserDetails defaultUser = defaultUserSnapshot.get();
             UsernamePasswordAuthenticationToken authentication =
                     new UsernamePasswordAuthenticationToken(
                             defaultUser, null, defaultUser.getAuthorities());
@@ -0,0 +1,103 @@
+package org.chase.pierce.notevaultapi.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.chase.pierce.notevaultapi.repository.UserRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory copy of the shared {@code default_user} account that anonymous requests run as.
+ * <p>
+ * The account is loaded on first use and refreshed on a fixed schedule, so anonymous requests never wait on
+ * the database. A failed scheduled refresh keeps serving the previous copy. Changes to the account made through
+ * the application invalidate the copy straight away; {@link #invalidate()} does the same by hand.
+ */
+@Component
+public class DefaultUserSnapshot {
+
+    public static final String DEFAULT_USERNAME = "default_user";
+    public static final String RELOAD_METRIC = "notevault.default_user.reload";
+
+    private static final Logger log = LoggerFactory.getLogger(DefaultUserSnapshot.class);
+
+    // Read straight from the repository rather than the users cache, so a reload always sees the committed row
+    private final UserRepository userRepository;
+    private final AtomicReference<UserDetails> current = new AtomicReference<>();
+    // Bumped by invalidate() so a load that was already in flight cannot publish a stale copy
+    private final AtomicLong generation = new AtomicLong();
+    private final Timer successfulReloads;
+    private final Timer failedReloads;
+
+    public DefaultUserSnapshot(UserRepository userRepository, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.userRepository = userRepository;
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.successfulReloads = Timer.builder(RELOAD_METRIC)
+                .description("Reloads of the default_user account from the database")
+                .tag("result", "success")
+                .register(registry);
+        this.failedReloads = Timer.builder(RELOAD_METRIC)
+                .description("Reloads of the default_user account from the database")
+                .tag("result", "failure")
+                .register(registry);
+    }
+
+    public UserDetails get() {
+        UserDetails user = current.get();
+        return user != null ? user : reload();
+    }
+
+    /**
+     * Loads the account from the database and publishes it. Failures propagate, leaving the previous copy in place.
+     */
+    public UserDetails reload() {
+        long loadedGeneration = generation.get();
+        Timer.Sample sample = Timer.start();
+        try {
+            UserDetails user = userRepository.findByUsername(DEFAULT_USERNAME)
+                    .map(UserPrincipal::new)
+                    .orElseThrow(() -> new UsernameNotFoundException(
+                            "User not found with username: " + DEFAULT_USERNAME));
+            sample.stop(successfulReloads);
+            if (generation.get() == loadedGeneration) {
+                current.set(user);
+            }
+            return user;
+        } catch (RuntimeException ex) {
+            sample.stop(failedReloads);
+            throw ex;
+        }
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        current.set(null);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void onUserAccountChanged(UserAccountChangedEvent event) {
+        if (DEFAULT_USERNAME.equals(event.username())) {
+            invalidate();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notevault.default-user.refresh-interval:5m}",
+            initialDelayString = "${notevault.default-user.refresh-interval:5m}")
+    void refresh() {
+        try {
+            reload();
+        } catch (RuntimeException ex) {
+            log.warn("Could not refresh {}, keeping the previous copy: {}", DEFAULT_USERNAME, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package org.chase.pierce.notevaultapi.security;
+
+/**
+ * Published after a user account is updated or deleted, so anything holding a copy of it can drop that copy.
+ */
+public record UserAccountChangedEvent(String username) {
+}
@@ -0,0 +1,27 @@
+package org.chase.pierce.notevaultapi.security;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.chase.pierce.notevaultapi.entity.User;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on {@link User} that announces every change made through the application.
+ * Changes made with direct SQL are not seen here and are picked up when cached copies expire.
+ */
+@Component
+public class UserAccountListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserAccountListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostUpdate
+    @PostRemove
+    void userChanged(User user) {
+        eventPublisher.publishEvent(new UserAccountChangedEvent(user.getUsername()));
+    }
+}
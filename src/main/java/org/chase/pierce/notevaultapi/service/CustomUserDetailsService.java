@@ -1,27 +1,80 @@
 package org.chase.pierce.notevaultapi.service;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.NonNull;
 import org.chase.pierce.notevaultapi.repository.UserRepository;
+import org.chase.pierce.notevaultapi.security.UserAccountChangedEvent;
 import org.chase.pierce.notevaultapi.security.UserPrincipal;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.Duration;
+
+/**
+ * Loads accounts for authentication through a bounded, TTL-based cache so repeat requests from the same
+ * user do not need a database connection. Entries are evicted as soon as the account changes through the
+ * application; changes made with direct SQL apply once the entry expires.
+ */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    public static final String CACHE_NAME = "users";
+
     private final UserRepository userRepository;
+    private final LoadingCache<String, UserPrincipal> users;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    @Value("${notevault.cache.users.max-size:10000}") long maxSize,
+                                    @Value("${notevault.cache.users.ttl:1m}") Duration ttl,
+                                    ObjectProvider<MeterRegistry> meterRegistry) {
         this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), users, CACHE_NAME);
     }
 
+    // Cached principals are shared between requests, which is only safe because UserPrincipal
+    // is not a CredentialsContainer: Spring Security would otherwise erase the password after login.
     @Override
     public @NonNull UserDetails loadUserByUsername(@NonNull String username) throws UsernameNotFoundException {
+        return users.get(username);
+    }
+
+    // A LoadingCache, so the cache metrics include how long these loads take
+    private UserPrincipal load(String username) {
         return userRepository.findByUsername(username)
                 .map(UserPrincipal::new)
-                .orElseThrow(() -> new UsernameNotFoundException(
-                        "User not found with username: " + username));
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+    }
+
+    public void evict(String username) {
+        users.invalidate(username);
+    }
+
+    public void evictAll() {
+        users.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return users.stats();
+    }
+
+    // After commit, so a concurrent login cannot re-cache the old row between eviction and commit
+    @TransactionalEventListener(fallbackExecution = true)
+    void onUserAccountChanged(UserAccountChangedEvent event) {
+        evict(event.username());
     }
 }
@@ -1,59 +1,164 @@
 package org.chase.pierce.notevaultapi.service;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import org.chase.pierce.notevaultapi.dto.CreateNoteRequest;
+import org.chase.pierce.notevaultapi.dto.NoteCursor;
+import org.chase.pierce.notevaultapi.dto.NoteDeleteResult;
+import org.chase.pierce.notevaultapi.dto.NoteDeletionRow;
+import org.chase.pierce.notevaultapi.dto.NoteFilter;
+import org.chase.pierce.notevaultapi.dto.NoteNameMatch;
+import org.chase.pierce.notevaultapi.dto.NotePage;
+import org.chase.pierce.notevaultapi.dto.NoteSearchPage;
+import org.chase.pierce.notevaultapi.dto.NoteSearchResult;
+import org.chase.pierce.notevaultapi.dto.NoteSearchRow;
+import org.chase.pierce.notevaultapi.dto.NoteSummary;
+import org.chase.pierce.notevaultapi.dto.NoteSummaryRow;
+import org.chase.pierce.notevaultapi.dto.NoteVersion;
+import org.chase.pierce.notevaultapi.dto.PatchNoteRequest;
+import org.chase.pierce.notevaultapi.dto.SearchCursor;
+import org.chase.pierce.notevaultapi.dto.TagMode;
 import org.chase.pierce.notevaultapi.dto.UpdateNoteRequest;
 import org.chase.pierce.notevaultapi.entity.Note;
 import org.chase.pierce.notevaultapi.entity.Role;
 import org.chase.pierce.notevaultapi.entity.Tag;
 import org.chase.pierce.notevaultapi.exception.NoteNotFoundException;
+import org.chase.pierce.notevaultapi.exception.NoteVersionMismatchException;
 import org.chase.pierce.notevaultapi.exception.UnauthorizedAccessException;
 import org.chase.pierce.notevaultapi.repository.NoteRepository;
 import org.chase.pierce.notevaultapi.repository.TagRepository;
 import org.chase.pierce.notevaultapi.util.InputSanitizer;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = NoteService.TIMER, histogram = true)
 public class NoteService {
 
+    public static final String TIMER = "notevault.note.service";
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int MAX_LOOKUP_RESULTS = 50;
+    // Low enough for a couple of typos in a short name, high enough that the index lookup stays selective
+    public static final float LOOKUP_SIMILARITY_THRESHOLD = 0.4f;
+
     private final NoteRepository noteRepository;
     private final TagRepository tagRepository;
+    private final EntityManager entityManager;
+    private final TagCache tagCache;
 
-    public NoteService(NoteRepository noteRepository, TagRepository tagRepository) {
+    public NoteService(NoteRepository noteRepository, TagRepository tagRepository, EntityManager entityManager,
+                       TagCache tagCache) {
         this.noteRepository = noteRepository;
         this.tagRepository = tagRepository;
+        this.entityManager = entityManager;
+        this.tagCache = tagCache;
+    }
+
+    /**
+     * Streams every note visible to {@code userId} ({@code null} for all notes) to {@code sink}, one at a time.
+     * Each note is detached once the sink has consumed it, so memory stays flat regardless of vault size.
+     */
+    @Transactional(readOnly = true)
+    public void exportNotes(String userId, Consumer<Note> sink) {
+        try (Stream<Note> notes = userId == null
+                ? noteRepository.streamAll()
+                : noteRepository.streamByUserId(userId)) {
+            notes.forEach(note -> {
+                sink.accept(note);
+                entityManager.detach(note);
+            });
+        }
     }
 
-    public List<Note> getAllNotes() {
-        return noteRepository.findAll();
+    public NotePage<Note> getNotesByFilters(NoteFilter filter, NoteCursor cursor, int limit) {
+        return loadPage(filter, cursor, limit, this::loadNotes);
     }
 
-    public List<Note> getNotesByFilters(Set<String> tags, String userId, Long notebookId) {
-        boolean hasTags = tags != null && !tags.isEmpty();
-        boolean hasUser = userId != null && !userId.isBlank();
-        boolean hasNotebook = notebookId != null;
+    /**
+     * Same listing as {@link #getNotesByFilters} but without note content, which is never read from the database.
+     */
+    public NotePage<NoteSummary> getNoteSummariesByFilters(NoteFilter filter, NoteCursor cursor, int limit) {
+        return loadPage(filter, cursor, limit, this::loadSummaries);
+    }
 
-        if (hasTags && hasUser && hasNotebook) {
-            return noteRepository.findByTagNamesAndUserIdAndNotebookId(tags, userId, notebookId);
-        } else if (hasTags && hasUser) {
-            return noteRepository.findByTagNamesAndUserId(tags, userId);
-        } else if (hasTags && hasNotebook) {
-            return noteRepository.findByTagNamesAndNotebookId(tags, notebookId);
-        } else if (hasUser && hasNotebook) {
-            return noteRepository.findByUserIdAndNotebookId(userId, notebookId);
-        } else if (hasTags) {
-            return noteRepository.findByTagNames(tags);
-        } else if (hasUser) {
-            return noteRepository.findByUserId(userId);
-        } else if (hasNotebook) {
-            return noteRepository.findByNotebookId(notebookId);
-        } else {
-            return noteRepository.findAll();
+    private <T> NotePage<T> loadPage(NoteFilter filter, NoteCursor cursor, int limit,
+                                     Function<List<Long>, List<T>> loader) {
+        Optional<Set<Long>> tagIds = filterTagIds(filter);
+        if (tagIds.isEmpty()) {
+            return new NotePage<>(List.of(), null);
         }
+
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        // One extra row tells us whether a next page exists without a count query
+        List<NoteCursor> keys = noteRepository.findPageKeys(filter, tagIds.get(), cursor, Limit.of(pageSize + 1));
+
+        boolean hasNext = keys.size() > pageSize;
+        List<NoteCursor> page = hasNext ? keys.subList(0, pageSize) : keys;
+        List<Long> ids = page.stream().map(NoteCursor::id).toList();
+        List<T> items = ids.isEmpty() ? List.of() : loader.apply(ids);
+        return new NotePage<>(items, hasNext ? page.getLast() : null);
+    }
+
+    /**
+     * Full-text search over note names and content, best matches first. {@code userId} limits the search to one
+     * owner's notes ({@code null} searches all notes).
+     */
+    // Repeatable read gives both queries one snapshot, so the summaries describe the notes as they were ranked; a
+    // read-only transaction on PostgreSQL never fails with a serialization error at this level
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public NoteSearchPage searchNotes(String query, String userId, SearchCursor cursor, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        int fetch = pageSize + 1;
+        List<NoteSearchRow> rows = userId == null || userId.isBlank()
+                ? noteRepository.search(query, cursor.rank(), cursor.id(), fetch)
+                : noteRepository.searchByUserId(query, userId, cursor.rank(), cursor.id(), fetch);
+
+        boolean hasNext = rows.size() > pageSize;
+        List<NoteSearchRow> page = hasNext ? rows.subList(0, pageSize) : rows;
+        if (page.isEmpty()) {
+            return new NoteSearchPage(List.of(), null);
+        }
+
+        Map<Long, NoteSummary> summaries = summariesById(page.stream().map(NoteSearchRow::id).toList());
+        List<NoteSearchResult> results = new ArrayList<>(page.size());
+        for (NoteSearchRow row : page) {
+            NoteSummary summary = summaries.get(row.id());
+            if (summary != null) {
+                results.add(new NoteSearchResult(summary, row.rank(), row.snippet()));
+            }
+        }
+        NoteSearchRow last = page.getLast();
+        return new NoteSearchPage(results, hasNext ? new SearchCursor(last.rank(), last.id()) : null);
+    }
+
+    /**
+     * Typo-tolerant lookup by note name for a quick switcher: the {@code limit} notes whose names best match
+     * {@code query}, closest first. {@code userId} limits the lookup to one owner's notes ({@code null} looks up
+     * all notes).
+     */
+    @Transactional(readOnly = true)
+    public List<NoteNameMatch> lookupNotesByName(String query, String userId, int limit) {
+        int size = Math.clamp(limit, 1, MAX_LOOKUP_RESULTS);
+        noteRepository.setWordSimilarityThreshold(LOOKUP_SIMILARITY_THRESHOLD);
+        return userId == null || userId.isBlank()
+                ? noteRepository.lookupByName(query, size)
+                : noteRepository.lookupByNameAndUserId(query, userId, size);
     }
 
     public Note getNoteById(Long id, String username, Role role) {
@@ -64,64 +169,347 @@ public class NoteService {
         return note;
     }
 
+    /**
+     * The note's version, with the same 404 and 403 as {@link #getNoteById}, read without loading the note.
+     */
+    public long getNoteVersion(Long id, String username, Role role) {
+        NoteVersion version = noteRepository.findVersionById(id)
+                .orElseThrow(() -> new NoteNotFoundException(id));
+
+        if (role != Role.ADMIN && !version.userId().equals(username)) {
+            throw accessDenied(id);
+        }
+        return version.version();
+    }
+
+    /**
+     * A stamp that changes whenever a note of {@code userId} is created, changed or deleted, or any note when
+     * {@code userId} is null or blank. It counts the writes so far, so it only grows, and is zero until the first one.
+     */
+    public long getChangeStamp(String userId) {
+        return userId == null || userId.isBlank()
+                ? noteRepository.findChangeStampOfAllNotes()
+                : noteRepository.findChangeStampByUserId(userId);
+    }
+
+    /**
+     * Folds the writes logged since the last run into the stored stamps. No stamp moves, but reading one then only
+     * sums the writes of the last interval.
+     */
+    @Scheduled(fixedDelayString = "${notevault.change-stamp.compact-interval:10s}",
+            initialDelayString = "${notevault.change-stamp.compact-interval:10s}")
+    @Transactional
+    public void compactChangeLog() {
+        noteRepository.compactChangeLog();
+    }
+
+    /**
+     * Deletes a note in one statement that also checks ownership, so the note is never loaded. The statement reports
+     * whether the note exists and whether the caller may delete it, which still tells 404 from 403.
+     */
     @Transactional
     public void deleteNoteById(Long id, String username, Role role) {
-        Note note = noteRepository.findById(id)
-                .orElseThrow(() -> new NoteNotFoundException(id));
+        List<NoteDeletionRow> rows = noteRepository.deleteAllowedByIdIn(new Long[]{id}, username, role == Role.ADMIN);
+        if (rows.isEmpty()) {
+            throw new NoteNotFoundException(id);
+        }
+        NoteDeletionRow row = rows.getFirst();
+        if (!row.allowed()) {
+            throw accessDenied(id);
+        }
+        if (!row.deleted()) {
+            throw new NoteNotFoundException(id);
+        }
+    }
 
-        verifyOwnership(note, username, role);
-        noteRepository.deleteById(id);
+    /**
+     * Deletes the notes with the given IDs in one statement, with the ownership check in the same statement. Notes of
+     * other users are refused rather than failing the request; admins may delete any note.
+     */
+    @Transactional
+    public NoteDeleteResult deleteNotesByIds(List<Long> ids, String username, Role role) {
+        Map<Long, NoteDeletionRow> outcomes = new HashMap<>();
+        for (NoteDeletionRow row : noteRepository.deleteAllowedByIdIn(
+                ids.toArray(Long[]::new), username, role == Role.ADMIN)) {
+            outcomes.put(row.id(), row);
+        }
+
+        List<Long> deleted = new ArrayList<>();
+        List<Long> refused = new ArrayList<>();
+        List<Long> notFound = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            NoteDeletionRow outcome = outcomes.get(id);
+            if (outcome != null && !outcome.allowed()) {
+                refused.add(id);
+            } else if (outcome != null && outcome.deleted()) {
+                deleted.add(id);
+            } else {
+                notFound.add(id);
+            }
+        }
+        return NoteDeleteResult.ofIds(deleted, refused, notFound);
+    }
+
+    /**
+     * Deletes every note matching {@code filter} in one statement. Ownership is part of the filter: callers restrict
+     * {@code filter.userId()} to the caller unless they are an admin.
+     */
+    @Transactional
+    public NoteDeleteResult deleteNotesByFilter(NoteFilter filter) {
+        Optional<Set<Long>> tagIds = filterTagIds(filter);
+        return NoteDeleteResult.ofCount(tagIds.isEmpty() ? 0 : noteRepository.deleteByFilter(filter, tagIds.get()));
     }
 
     @Transactional
     public Note createNote(CreateNoteRequest request, String username) {
-        Note note = new Note();
-        note.setName(InputSanitizer.sanitizePlainText(request.getName()));
-        note.setContent(InputSanitizer.sanitizeContent(request.getContent()));
-        note.setUserId(username);
+        Note note = newNote(request, username);
         note.setTags(resolveTags(request.getTags()));
 
         return noteRepository.save(note);
     }
 
+    /**
+     * Creates every note in one transaction, in request order. Tags are resolved once for the whole batch and the
+     * inserts go out in JDBC batches, so the number of statements does not grow with the number of tags per note.
+     */
     @Transactional
-    public Note updateNote(Long id, UpdateNoteRequest request, String username, Role role) {
-        Note note = noteRepository.findById(id)
+    public List<Note> createNotes(List<CreateNoteRequest> requests, String username) {
+        List<Set<String>> tagNames = new ArrayList<>(requests.size());
+        Set<String> allTagNames = new HashSet<>();
+        for (CreateNoteRequest request : requests) {
+            Set<String> names = sanitizeTagNames(request.getTags());
+            tagNames.add(names);
+            allTagNames.addAll(names);
+        }
+        Map<String, Tag> tagsByName = resolveTagsByName(allTagNames);
+
+        List<Note> notes = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            Note note = newNote(requests.get(i), username);
+            for (String name : tagNames.get(i)) {
+                note.getTags().add(tagsByName.get(name));
+            }
+            notes.add(note);
+        }
+        return noteRepository.saveAll(notes);
+    }
+
+    /**
+     * Replaces the note's name, content and tags; the note keeps its owner, also when an admin edits it. With
+     * {@code expectedVersions}, from the client's If-Match, the note must still be at one of those versions: see
+     * {@link #saveExpecting}.
+     */
+    @Transactional
+    public Note updateNote(Long id, UpdateNoteRequest request, Set<Long> expectedVersions, String username, Role role) {
+        // The current tags are replaced, not read: swapping in a new set lets Hibernate clear them by note_id
+        Note note = noteRepository.findWithNotebookById(id)
                 .orElseThrow(() -> new NoteNotFoundException(id));
 
         verifyOwnership(note, username, role);
+        if (expectedVersions != null && !expectedVersions.contains(note.getVersion())) {
+            throw new NoteVersionMismatchException(id);
+        }
 
         note.setName(InputSanitizer.sanitizePlainText(request.getName()));
         note.setContent(InputSanitizer.sanitizeContent(request.getContent()));
-        note.setUserId(username);
         note.setTags(resolveTags(request.getTags()));
 
-        return noteRepository.save(note);
+        return saveExpecting(note, expectedVersions);
+    }
+
+    /**
+     * Applies a merge patch: only the fields it sends are sanitized and written, a name or content equal to the stored
+     * one is left alone, and tags are diffed so only the rows that change are deleted or inserted. The
+     * {@code expectedVersions} work as in {@link #updateNote}.
+     */
+    @Transactional
+    public Note patchNote(Long id, PatchNoteRequest patch, Set<Long> expectedVersions, String username, Role role) {
+        // The current tags are only read when the patch changes them
+        Note note = (patch.getTags() != null ? noteRepository.findById(id) : noteRepository.findWithNotebookById(id))
+                .orElseThrow(() -> new NoteNotFoundException(id));
+
+        verifyOwnership(note, username, role);
+        if (expectedVersions != null && !expectedVersions.contains(note.getVersion())) {
+            throw new NoteVersionMismatchException(id);
+        }
+
+        if (patch.getName() != null && !patch.getName().orElseThrow().equals(note.getName())) {
+            note.setName(InputSanitizer.sanitizePlainText(patch.getName().orElseThrow()));
+        }
+        if (patch.getContent() != null && !patch.getContent().orElseThrow().equals(note.getContent())) {
+            note.setContent(InputSanitizer.sanitizeContent(patch.getContent().orElseThrow()));
+        }
+        if (patch.getTags() != null) {
+            Set<String> wanted = sanitizeTagNames(patch.getTags().orElse(null));
+            // Drops the tags no longer wanted and leaves in wanted only the names the note does not have yet
+            note.getTags().removeIf(tag -> !wanted.remove(tag.getName()));
+            note.getTags().addAll(resolveTagsByName(wanted).values());
+        }
+
+        return saveExpecting(note, expectedVersions);
+    }
+
+    // Hibernate writes the note with UPDATE ... WHERE id = ? AND version = ?, and takes no lock in between, so a
+    // concurrent save after the version check above is caught by the UPDATE matching no row. That is flushed here
+    // when the client asked for a version, to answer it as a failed precondition rather than a generic conflict
+    private Note saveExpecting(Note note, Set<Long> expectedVersions) {
+        if (expectedVersions == null) {
+            return noteRepository.save(note);
+        }
+        try {
+            return noteRepository.saveAndFlush(note);
+        } catch (OptimisticLockingFailureException e) {
+            throw new NoteVersionMismatchException(note.getId());
+        }
+    }
+
+    private List<Note> loadNotes(List<Long> ids) {
+        Map<Long, Note> byId = new HashMap<>();
+        for (Note note : noteRepository.findAllById(ids)) {
+            byId.put(note.getId(), note);
+        }
+        return inOrder(ids, byId);
+    }
+
+    private List<NoteSummary> loadSummaries(List<Long> ids) {
+        return inOrder(ids, summariesById(ids));
+    }
+
+    private Map<Long, NoteSummary> summariesById(List<Long> ids) {
+        Map<Long, NoteSummary> byId = new HashMap<>();
+        for (NoteSummaryRow row : noteRepository.findSummaryRowsByIdIn(ids)) {
+            NoteSummary summary = byId.computeIfAbsent(row.id(), key -> row.toSummary());
+            if (row.tagId() != null) {
+                summary.tags().add(row.tag());
+            }
+        }
+        return byId;
+    }
+
+    private static <T> List<T> inOrder(List<Long> ids, Map<Long, T> byId) {
+        List<T> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T item = byId.get(id);
+            if (item != null) {
+                ordered.add(item);
+            }
+        }
+        return ordered;
     }
 
     private void verifyOwnership(Note note, String username, Role role) {
         if (role != Role.ADMIN && !note.getUserId().equals(username)) {
-            throw new UnauthorizedAccessException(
-                    "You do not have permission to access note with id: " + note.getId());
+            throw accessDenied(note.getId());
         }
     }
 
+    private static UnauthorizedAccessException accessDenied(Long id) {
+        return new UnauthorizedAccessException("You do not have permission to access note with id: " + id);
+    }
+
+    private static Note newNote(CreateNoteRequest request, String username) {
+        Note note = new Note();
+        note.setName(InputSanitizer.sanitizePlainText(request.getName()));
+        note.setContent(InputSanitizer.sanitizeContent(request.getContent()));
+        note.setUserId(username);
+        return note;
+    }
+
     private Set<Tag> resolveTags(Set<String> tagNames) {
-        Set<Tag> tags = new HashSet<>();
-        if (tagNames != null && !tagNames.isEmpty()) {
-            for (String tagName : tagNames) {
-                String sanitizedName = InputSanitizer.sanitizePlainText(tagName);
-                if (sanitizedName != null) {
-                    Tag tag = tagRepository.findByName(sanitizedName)
-                            .orElseGet(() -> {
-                                Tag newTag = new Tag();
-                                newTag.setName(sanitizedName);
-                                return tagRepository.save(newTag);
-                            });
-                    tags.add(tag);
-                }
+        return new HashSet<>(resolveTagsByName(sanitizeTagNames(tagNames)).values());
+    }
+
+    private static Set<String> sanitizeTagNames(Set<String> tagNames) {
+        Set<String> sanitized = new HashSet<>();
+        if (tagNames == null) {
+            return sanitized;
+        }
+        for (String tagName : tagNames) {
+            String sanitizedName = InputSanitizer.sanitizePlainText(tagName);
+            if (sanitizedName != null) {
+                sanitized.add(sanitizedName);
             }
         }
+        return sanitized;
+    }
+
+    /**
+     * Resolves sanitized tag names to tags, creating the missing ones. Names already in the tag cache cost nothing;
+     * the rest take at most three statements regardless of how many there are: one lookup, one bulk insert of the
+     * missing names, and a second lookup only if a concurrent writer created some of them first.
+     */
+    private Map<String, Tag> resolveTagsByName(Set<String> tagNames) {
+        Map<String, Tag> tags = new HashMap<>();
+        if (tagNames.isEmpty()) {
+            return tags;
+        }
+
+        Set<String> missing = new HashSet<>(tagNames);
+        tagCache.getAllPresent(missing).forEach((name, id) -> {
+            tags.put(name, cachedTag(id, name));
+            missing.remove(name);
+        });
+        if (missing.isEmpty()) {
+            return tags;
+        }
+
+        List<Tag> loaded = new ArrayList<>();
+        collectTags(tagRepository.findByNameIn(missing), loaded, missing);
+        if (!missing.isEmpty()) {
+            collectTags(tagRepository.insertIfAbsent(missing.toArray(String[]::new)), loaded, missing);
+        }
+        if (!missing.isEmpty()) {
+            collectTags(tagRepository.findByNameIn(missing), loaded, missing);
+        }
+        tagCache.putAll(loaded);
+        for (Tag tag : loaded) {
+            tags.put(tag.getName(), tag);
+        }
         return tags;
     }
+
+    /**
+     * The ids of the filter's tags, or empty when no note can match because none of the tags exist, or in ALL mode
+     * because one of them does not.
+     */
+    private Optional<Set<Long>> filterTagIds(NoteFilter filter) {
+        if (filter.tags().isEmpty()) {
+            return Optional.of(Set.of());
+        }
+        Set<Long> tagIds = resolveTagIds(filter.tags());
+        boolean nothingMatches = filter.tagMode() == TagMode.ALL
+                ? tagIds.size() < filter.tags().size()
+                : tagIds.isEmpty();
+        return nothingMatches ? Optional.empty() : Optional.of(tagIds);
+    }
+
+    private Set<Long> resolveTagIds(Set<String> tagNames) {
+        Map<String, Long> cached = tagCache.getAllPresent(tagNames);
+        Set<Long> ids = new HashSet<>(cached.values());
+        if (cached.size() < tagNames.size()) {
+            Set<String> missing = new HashSet<>(tagNames);
+            missing.removeAll(cached.keySet());
+            List<Tag> found = tagRepository.findByNameIn(missing);
+            for (Tag tag : found) {
+                ids.add(tag.getId());
+            }
+            tagCache.putAll(found);
+        }
+        return ids;
+    }
+
+    private static void collectTags(List<Tag> found, List<Tag> loaded, Set<String> missing) {
+        for (Tag tag : found) {
+            loaded.add(tag);
+            missing.remove(tag.getName());
+        }
+    }
+
+    // Detached stand-in for a cached tag: writing the note_tags row only needs the id
+    private static Tag cachedTag(Long id, String name) {
+        Tag tag = new Tag();
+        tag.setId(id);
+        tag.setName(name);
+        return tag;
+    }
 }
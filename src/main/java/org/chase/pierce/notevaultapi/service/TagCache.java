@@ -0,0 +1,81 @@
+package org.chase.pierce.notevaultapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.chase.pierce.notevaultapi.entity.Tag;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded name to id dictionary for tags. Tags are never renamed, so an entry stays valid for as long as
+ * the tag exists; the write expiry only limits how long a tag deleted directly in the database can linger.
+ */
+@Component
+public class TagCache {
+
+    public static final String CACHE_NAME = "tags";
+
+    private final Cache<String, Long> cache;
+
+    public TagCache(@Value("${notevault.cache.tags.max-size:10000}") long maxSize,
+                    @Value("${notevault.cache.tags.expire-after-write:1h}") Duration expireAfterWrite,
+                    ObjectProvider<MeterRegistry> meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached ids for whichever of {@code names} are known, keyed by name.
+     */
+    public Map<String, Long> getAllPresent(Collection<String> names) {
+        return cache.getAllPresent(names);
+    }
+
+    /**
+     * Caches the given tags. Inside a transaction the entries are only published once it commits,
+     * so a rolled-back insert can never hand out the id of a row that does not exist.
+     */
+    public void putAll(Collection<Tag> tags) {
+        if (tags.isEmpty()) {
+            return;
+        }
+        Map<String, Long> entries = new HashMap<>();
+        for (Tag tag : tags) {
+            entries.put(tag.getName(), tag.getId());
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.putAll(entries);
+                }
+            });
+        } else {
+            cache.putAll(entries);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,292 @@
+package org.chase.pierce.notevaultapi.util;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass sanitizer behind {@link InputSanitizer#sanitizeContent(String)}.
+ * <p>
+ * The input is read once, left to right. Text is copied as-is. Each tag is tokenized into its name and
+ * attributes (quoted values may contain {@code >}) and then either dropped or copied without its unsafe parts:
+ * <ul>
+ *     <li>script, iframe, object, embed, form, input, link, meta, style, base and applet tags are dropped,
+ *     their text content is kept</li>
+ *     <li>an {@code <a>} whose href uses the javascript, data or vbscript protocol is dropped along with its
+ *     closing {@code </a>}, keeping the link text</li>
+ *     <li>{@code on*} event handler attributes are removed</li>
+ *     <li>{@code javascript:}, {@code data:} and {@code vbscript:} are removed from the remaining attribute
+ *     values</li>
+ * </ul>
+ * No position is revisited after it has been copied or skipped, so the work is linear in the input length
+ * whatever the markup looks like.
+ */
+final class HtmlSanitizer {
+
+    private static final String[] DANGEROUS_TAGS = {
+            "script", "iframe", "object", "embed", "form", "input", "link", "meta", "style", "base", "applet"
+    };
+    private static final String[] DANGEROUS_PROTOCOLS = {"javascript", "data", "vbscript"};
+
+    private static final int INITIAL_ATTRIBUTES = 8;
+
+    private final String input;
+    private final int length;
+    private final StringBuilder out;
+
+    // Attribute spans of the tag being processed, reused between tags. A value start of -1 means no value
+    private int[] attrStart = new int[INITIAL_ATTRIBUTES];
+    private int[] attrNameEnd = new int[INITIAL_ATTRIBUTES];
+    private int[] valueStart = new int[INITIAL_ATTRIBUTES];
+    private int[] valueEnd = new int[INITIAL_ATTRIBUTES];
+    private int[] attrEnd = new int[INITIAL_ATTRIBUTES];
+    private int attributes;
+
+    // Dropped <a> tags whose </a> still has to be dropped
+    private int unclosedAnchors;
+
+    private HtmlSanitizer(String input) {
+        this.input = input;
+        this.length = input.length();
+        this.out = new StringBuilder(length);
+    }
+
+    static String sanitize(String input) {
+        return new HtmlSanitizer(input).run();
+    }
+
+    private String run() {
+        int pos = 0;
+        while (pos < length) {
+            int lt = input.indexOf('<', pos);
+            if (lt < 0) {
+                out.append(input, pos, length);
+                break;
+            }
+            out.append(input, pos, lt);
+            pos = tag(lt);
+        }
+        return trimmed();
+    }
+
+    /**
+     * Handles the tag starting at {@code lt} and returns the position after it. As in browsers, a {@code <}
+     * not directly followed by a letter or {@code /} and a letter is text and copied as such.
+     */
+    private int tag(int lt) {
+        int pos = lt + 1;
+        boolean closing = pos < length && input.charAt(pos) == '/';
+        if (closing) {
+            pos++;
+        }
+        if (pos >= length || !isAsciiLetter(input.charAt(pos))) {
+            out.append('<');
+            return lt + 1;
+        }
+
+        int nameStart = pos;
+        while (pos < length && !isNameTerminator(input.charAt(pos))) {
+            pos++;
+        }
+        int nameEnd = pos;
+
+        int end = readAttributes(pos);
+        int tagEnd = end < length ? end + 1 : length;
+
+        if (matchesAny(nameStart, nameEnd, DANGEROUS_TAGS)) {
+            return tagEnd;
+        }
+        if (isAnchor(nameStart, nameEnd)) {
+            if (closing && unclosedAnchors > 0) {
+                unclosedAnchors--;
+                return tagEnd;
+            }
+            if (!closing && hasDangerousHref()) {
+                unclosedAnchors++;
+                return tagEnd;
+            }
+        }
+
+        copyTag(lt, end, tagEnd);
+        return tagEnd;
+    }
+
+    /**
+     * Records the attribute spans from {@code pos} up to the closing {@code >}. Returns the index of the
+     * {@code >}, or the input length if the tag is never closed.
+     */
+    private int readAttributes(int pos) {
+        attributes = 0;
+        while (true) {
+            while (pos < length && (isWhitespace(input.charAt(pos)) || input.charAt(pos) == '/')) {
+                pos++;
+            }
+            if (pos >= length || input.charAt(pos) == '>') {
+                return pos;
+            }
+
+            int start = pos;
+            pos++;
+            while (pos < length && !isNameTerminator(input.charAt(pos)) && input.charAt(pos) != '=') {
+                pos++;
+            }
+            int nameEnd = pos;
+            int vStart = -1;
+            int vEnd = -1;
+
+            int afterName = skipWhitespace(pos);
+            if (afterName < length && input.charAt(afterName) == '=') {
+                pos = skipWhitespace(afterName + 1);
+                if (pos < length && (input.charAt(pos) == '"' || input.charAt(pos) == '\'')) {
+                    char quote = input.charAt(pos);
+                    vStart = pos + 1;
+                    int close = input.indexOf(quote, vStart);
+                    vEnd = close < 0 ? length : close;
+                    pos = close < 0 ? length : close + 1;
+                } else {
+                    vStart = pos;
+                    while (pos < length && !isWhitespace(input.charAt(pos)) && input.charAt(pos) != '>') {
+                        pos++;
+                    }
+                    vEnd = pos;
+                }
+            }
+            addAttribute(start, nameEnd, vStart, vEnd, pos);
+        }
+    }
+
+    private void addAttribute(int start, int nameEnd, int vStart, int vEnd, int end) {
+        if (attributes == attrStart.length) {
+            int size = attributes * 2;
+            attrStart = Arrays.copyOf(attrStart, size);
+            attrNameEnd = Arrays.copyOf(attrNameEnd, size);
+            valueStart = Arrays.copyOf(valueStart, size);
+            valueEnd = Arrays.copyOf(valueEnd, size);
+            attrEnd = Arrays.copyOf(attrEnd, size);
+        }
+        attrStart[attributes] = start;
+        attrNameEnd[attributes] = nameEnd;
+        valueStart[attributes] = vStart;
+        valueEnd[attributes] = vEnd;
+        attrEnd[attributes] = end;
+        attributes++;
+    }
+
+    /**
+     * Copies the tag, leaving out event handlers and dangerous protocols in attribute values.
+     */
+    private void copyTag(int lt, int end, int tagEnd) {
+        int pos = lt;
+        for (int i = 0; i < attributes; i++) {
+            out.append(input, pos, attrStart[i]);
+            pos = attrEnd[i];
+            if (isEventHandler(attrStart[i], attrNameEnd[i])) {
+                continue;
+            }
+            if (valueStart[i] < 0) {
+                out.append(input, attrStart[i], attrEnd[i]);
+                continue;
+            }
+            out.append(input, attrStart[i], valueStart[i]);
+            copyWithoutProtocols(valueStart[i], valueEnd[i]);
+            out.append(input, valueEnd[i], attrEnd[i]);
+        }
+        out.append(input, pos, end);
+        if (tagEnd > end) {
+            out.append('>');
+        }
+    }
+
+    private void copyWithoutProtocols(int from, int to) {
+        int copied = from;
+        int pos = from;
+        while (pos < to) {
+            int protocolEnd = protocolAt(pos, to);
+            if (protocolEnd < 0) {
+                pos++;
+                continue;
+            }
+            out.append(input, copied, pos);
+            copied = protocolEnd;
+            pos = protocolEnd;
+        }
+        out.append(input, copied, to);
+    }
+
+    /**
+     * If a dangerous protocol followed by optional whitespace and {@code :} starts at {@code pos}, returns
+     * the position after the colon, otherwise -1.
+     */
+    private int protocolAt(int pos, int to) {
+        for (String protocol : DANGEROUS_PROTOCOLS) {
+            int end = pos + protocol.length();
+            if (end <= to && input.regionMatches(true, pos, protocol, 0, protocol.length())) {
+                while (end < to && isWhitespace(input.charAt(end))) {
+                    end++;
+                }
+                return end < to && input.charAt(end) == ':' ? end + 1 : -1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean hasDangerousHref() {
+        for (int i = 0; i < attributes; i++) {
+            if (valueStart[i] >= 0 && matches(attrStart[i], attrNameEnd[i], "href")
+                    && protocolAt(skipWhitespace(valueStart[i]), valueEnd[i]) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isEventHandler(int start, int end) {
+        return end - start > 2 && input.regionMatches(true, start, "on", 0, 2);
+    }
+
+    private boolean isAnchor(int start, int end) {
+        return matches(start, end, "a");
+    }
+
+    private boolean matchesAny(int start, int end, String[] names) {
+        for (String name : names) {
+            if (matches(start, end, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(int start, int end, String name) {
+        return end - start == name.length() && input.regionMatches(true, start, name, 0, name.length());
+    }
+
+    private int skipWhitespace(int pos) {
+        while (pos < length && isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private String trimmed() {
+        int start = 0;
+        int end = out.length();
+        while (start < end && out.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && out.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return out.substring(start, end);
+    }
+
+    private static boolean isNameTerminator(char c) {
+        return isWhitespace(c) || c == '/' || c == '>';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -1,48 +1,42 @@
 package org.chase.pierce.notevaultapi.util;
 
-import java.util.regex.Pattern;
-
 public final class InputSanitizer {
 
     private InputSanitizer() {
     }
 
-    private static final Pattern HTML_TAG_PATTERN = Pattern.compile("<[^>]*>");
-
-    private static final Pattern DANGEROUS_TAG_PATTERN = Pattern.compile(
-            "<\\s*/?(script|iframe|object|embed|form|input|link|meta|style|base|applet)[^>]*>",
-            Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern DANGEROUS_PROTOCOL_PATTERN = Pattern.compile(
-            "(javascript|data|vbscript)\\s*:",
-            Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern DANGEROUS_HREF_TAG_PATTERN = Pattern.compile(
-            "<a\\s+[^>]*href\\s*=\\s*\"\\s*(javascript|data|vbscript):[^\"]*\"[^>]*>(.*?)</a>",
-            Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern EVENT_HANDLER_PATTERN = Pattern.compile(
-            "\\bon\\w+\\s*=\\s*\"[^\"]*\"|\\bon\\w+\\s*=\\s*'[^']*'|\\bon\\w+\\s*=\\s*\\S+",
-            Pattern.CASE_INSENSITIVE
-    );
-
-
+    /**
+     * Removes everything from each {@code <} to the next {@code >}. A {@code <} with no {@code >} after it
+     * is kept as text.
+     */
     public static String stripAllHtml(String input) {
         if (input == null) {
             return null;
         }
-        return HTML_TAG_PATTERN.matcher(input).replaceAll("").trim();
+        StringBuilder out = new StringBuilder(input.length());
+        int pos = 0;
+        while (pos < input.length()) {
+            int lt = input.indexOf('<', pos);
+            int gt = lt < 0 ? -1 : input.indexOf('>', lt + 1);
+            if (gt < 0) {
+                // No tag can close after this point
+                out.append(input, pos, input.length());
+                break;
+            }
+            out.append(input, pos, lt);
+            pos = gt + 1;
+        }
+        return out.toString().trim();
     }
 
+    /**
+     * Removes dangerous tags, event handlers and script protocols in a single pass, see {@link HtmlSanitizer}.
+     */
     public static String sanitizeContent(String input) {
         if (input == null) {
             return null;
         }
-        String sanitized = DANGEROUS_TAG_PATTERN.matcher(input).replaceAll("");
-        sanitized = DANGEROUS_HREF_TAG_PATTERN.matcher(sanitized).replaceAll("$2");
-        sanitized = EVENT_HANDLER_PATTERN.matcher(sanitized).replaceAll("");
-        sanitized = DANGEROUS_PROTOCOL_PATTERN.matcher(sanitized).replaceAll("");
-        return sanitized.trim();
+        return HtmlSanitizer.sanitize(input);
     }
 
     public static String sanitizePlainText(String input) {
@@ -0,0 +1,15 @@
+-- Keyset pages are ordered by (modified_at, id) and compare against the cursor, which never matches NULL
+UPDATE ud.note SET modified_at = created_at WHERE modified_at IS NULL;
+ALTER TABLE ud.note ALTER COLUMN modified_at SET NOT NULL;
+
+-- Newest-first pages across all notes (admin listing)
+CREATE INDEX IF NOT EXISTS note_modified_at_id_idx ON ud.note (modified_at DESC, id DESC);
+
+-- Newest-first pages of one owner, also serves the owner's export and plain user_id lookups
+CREATE INDEX IF NOT EXISTS note_user_id_modified_at_idx ON ud.note (user_id, modified_at DESC, id DESC);
+
+-- Newest-first pages of one notebook, also covers the notebook_id foreign key
+CREATE INDEX IF NOT EXISTS note_notebook_id_modified_at_idx ON ud.note (notebook_id, modified_at DESC, id DESC);
+
+-- The primary key (note_id, tag_id) answers "tags of a note"; tag filters need "notes with a tag"
+CREATE INDEX IF NOT EXISTS note_tags_tag_id_note_id_idx ON ud.note_tags (tag_id, note_id);
@@ -0,0 +1,8 @@
+-- Full-text search over name and content. Name matches rank above content matches. The default parser
+-- classifies HTML tags as their own token type, which the english configuration does not index
+ALTER TABLE ud.note ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', coalesce(name, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(content, '')), 'B')
+) STORED;
+
+CREATE INDEX IF NOT EXISTS note_search_vector_idx ON ud.note USING GIN (search_vector);
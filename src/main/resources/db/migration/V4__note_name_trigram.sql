@@ -0,0 +1,5 @@
+-- Typo-tolerant lookup of notes by name. The extension goes into public so its operators resolve from the
+-- application's default search_path rather than from the schema Flyway migrates
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+
+CREATE INDEX IF NOT EXISTS note_name_trgm_idx ON ud.note USING GIN (name gin_trgm_ops);
@@ -0,0 +1,4 @@
+-- Keyset pages sorted by creation time, in either direction (ascending reads the same indexes backwards)
+CREATE INDEX IF NOT EXISTS note_created_at_id_idx ON ud.note (created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS note_user_id_created_at_idx ON ud.note (user_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS note_notebook_id_created_at_idx ON ud.note (notebook_id, created_at DESC, id DESC);
@@ -0,0 +1,8 @@
+-- Hibernate draws note ids from ud.note_id_seq 50 at a time instead of reading each one back after the insert, which
+-- is what lets note inserts be batched. Each value v reserves the ids v-49..v, so the sequence starts 50 above the
+-- highest existing id. Rows inserted with the column default take the top id of their own block and never collide.
+-- A plain sequence rather than the identity's own one, which Hibernate's schema validation does not see.
+ALTER TABLE ud.note ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE ud.note_id_seq INCREMENT BY 50 OWNED BY ud.note.id;
+SELECT setval('ud.note_id_seq', COALESCE(MAX(id), 0) + 50, false) FROM ud.note;
+ALTER TABLE ud.note ALTER COLUMN id SET DEFAULT nextval('ud.note_id_seq');
@@ -0,0 +1,103 @@
+-- Version of each note, moved by every change to the note or its tags. It is the note's ETag
+ALTER TABLE ud.note ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- Every UPDATE of a note adds one to its version unless it sets the version itself, so plain SQL moves it too
+CREATE FUNCTION ud.bump_note_version() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF NEW.version = OLD.version THEN
+        NEW.version := OLD.version + 1;
+    END IF;
+    RETURN NEW;
+END
+$$;
+
+CREATE TRIGGER note_version_on_update BEFORE UPDATE ON ud.note
+    FOR EACH ROW EXECUTE FUNCTION ud.bump_note_version();
+
+-- Adding or removing a tag changes the note, so it moves the version of every note whose tags a statement touched.
+-- A transition table can only belong to a trigger on one event, hence one trigger per event sharing this function
+CREATE FUNCTION ud.bump_tagged_note_versions() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    UPDATE ud.note SET version = version + 1
+    WHERE id IN (SELECT note_id FROM changed_tags);
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER note_tags_version_on_insert AFTER INSERT ON ud.note_tags
+    REFERENCING NEW TABLE AS changed_tags
+    FOR EACH STATEMENT EXECUTE FUNCTION ud.bump_tagged_note_versions();
+
+CREATE TRIGGER note_tags_version_on_delete AFTER DELETE ON ud.note_tags
+    REFERENCING OLD TABLE AS changed_tags
+    FOR EACH STATEMENT EXECUTE FUNCTION ud.bump_tagged_note_versions();
+
+-- Change stamp per owner, the ETag of their note listings: how many of their note rows have been inserted, updated
+-- or deleted so far. Writers only append to ud.note_change_log, one row per owner and statement, so concurrent saves
+-- never wait on each other for it, and whatever order they commit in, each one adds to the stamp.
+CREATE TABLE ud.note_change_log (
+    user_id VARCHAR(255) NOT NULL,
+    changes BIGINT       NOT NULL
+);
+
+CREATE INDEX note_change_log_user_id_idx ON ud.note_change_log (user_id) INCLUDE (changes);
+
+-- The log folded per owner by ud.compact_note_changes(). A stamp is an owner's row here plus their rows still in the
+-- log; the row with an empty user_id, which no note can have, holds the stamp of all notes
+CREATE TABLE ud.note_change (
+    user_id VARCHAR(255) PRIMARY KEY,
+    stamp   BIGINT       NOT NULL
+);
+
+ALTER TABLE ud.note ADD CONSTRAINT note_user_id_not_empty CHECK (user_id <> '');
+
+CREATE FUNCTION ud.log_note_changes() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO ud.note_change_log (user_id, changes)
+        SELECT user_id, count(*) FROM new_notes GROUP BY user_id;
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO ud.note_change_log (user_id, changes)
+        SELECT user_id, count(*) FROM old_notes GROUP BY user_id;
+    ELSE
+        -- A note given to another owner changes the listing of both
+        INSERT INTO ud.note_change_log (user_id, changes)
+        SELECT user_id, count(*)
+        FROM (SELECT user_id FROM new_notes
+              UNION ALL
+              SELECT old_notes.user_id
+              FROM old_notes JOIN new_notes ON new_notes.id = old_notes.id
+              WHERE new_notes.user_id <> old_notes.user_id) changed
+        GROUP BY user_id;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER note_change_on_insert AFTER INSERT ON ud.note
+    REFERENCING NEW TABLE AS new_notes
+    FOR EACH STATEMENT EXECUTE FUNCTION ud.log_note_changes();
+
+CREATE TRIGGER note_change_on_update AFTER UPDATE ON ud.note
+    REFERENCING OLD TABLE AS old_notes NEW TABLE AS new_notes
+    FOR EACH STATEMENT EXECUTE FUNCTION ud.log_note_changes();
+
+CREATE TRIGGER note_change_on_delete AFTER DELETE ON ud.note
+    REFERENCING OLD TABLE AS old_notes
+    FOR EACH STATEMENT EXECUTE FUNCTION ud.log_note_changes();
+
+-- Moves the log into ud.note_change in one statement, so no reader sees a change in both or in neither and every
+-- stamp reads the same before and after. Runs concurrently with itself too: a log row deleted by one run is skipped by
+-- the other. Returns the number of log rows folded
+CREATE FUNCTION ud.compact_note_changes() RETURNS bigint LANGUAGE sql AS $$
+    WITH moved AS (
+        DELETE FROM ud.note_change_log RETURNING user_id, changes
+    ), folded AS (
+        INSERT INTO ud.note_change AS rollup (user_id, stamp)
+        SELECT user_id, sum(changes) FROM moved GROUP BY user_id
+        UNION ALL
+        SELECT '', sum(changes) FROM moved HAVING count(*) > 0
+        ON CONFLICT (user_id) DO UPDATE SET stamp = rollup.stamp + EXCLUDED.stamp
+    )
+    SELECT count(*) FROM moved;
+$$;
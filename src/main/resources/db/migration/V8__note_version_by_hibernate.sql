@@ -0,0 +1,5 @@
+-- Hibernate now moves a note's version itself when its tags change (@Version), in the same UPDATE that checks it.
+-- Moving it again from note_tags would leave the saved note one version behind the row, and its ETag stale
+DROP TRIGGER note_tags_version_on_insert ON ud.note_tags;
+DROP TRIGGER note_tags_version_on_delete ON ud.note_tags;
+DROP FUNCTION ud.bump_tagged_note_versions();
@@ -45,6 +45,17 @@ public class NoteApiStepDefinitions {
         lastResponse = apiClient.delete("/api/v1/notes/" + savedNoteId);
     }
 
+    @When("I scrape the Prometheus endpoint")
+    public void scrapePrometheus() {
+        lastResponse = apiClient.get("/actuator/prometheus");
+    }
+
+    @And("the response should contain {string}")
+    public void verifyBodyContains(String expected) {
+        assertTrue(lastResponse.body().contains(expected),
+                "Expected response to contain " + expected);
+    }
+
     @And("the response should contain the name {string}")
     public void verifyName(String expectedName) throws Exception {
         JsonNode json = objectMapper.readTree(lastResponse.body());
@@ -0,0 +1,104 @@
+package org.chase.pierce.notevaultapi.benchmark;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic inputs for the benchmarks. Every corpus is generated from a fixed seed so results stay
+ * comparable between commits.
+ */
+final class BenchmarkCorpus {
+
+    private static final long SEED = 42L;
+
+    private static final String[] WORDS = {
+            "meeting", "roadmap", "deadline", "review", "draft", "budget", "notes", "follow", "up", "with",
+            "the", "team", "about", "quarterly", "planning", "and", "release", "schedule", "for", "launch"
+    };
+
+    // Mostly harmless markup with the occasional construct the sanitizer has to remove
+    private static final String[] FRAGMENTS = {
+            "<p>%s</p>",
+            "<p><b>%s</b> <i>%s</i></p>",
+            "<ul><li>%s</li><li>%s</li></ul>",
+            "<a href=\"https://example.com/%s\">%s</a>",
+            "<h2>%s</h2>",
+            "<blockquote>%s</blockquote>",
+            "<script>alert('%s')</script>",
+            "<img src=\"x.png\" onerror=\"alert('%s')\">%s",
+            "<a href=\"javascript:alert('%s')\">%s</a>",
+            "<div style=\"color: red\" onclick='steal(\"%s\")'>%s</div>"
+    };
+
+    private BenchmarkCorpus() {
+    }
+
+    /**
+     * A typical note body of a few hundred characters.
+     */
+    static String smallNote() {
+        return html(new Random(SEED), 400);
+    }
+
+    /**
+     * A note body of at least 1 MB.
+     */
+    static String largeNote() {
+        return html(new Random(SEED), 1024 * 1024);
+    }
+
+    /**
+     * About 64 KB built to make backtracking sanitizers scan to the end of the input from every tag:
+     * anchors with a dangerous href that are never closed, followed by a run of unmatched brackets.
+     */
+    static String adversarialNote() {
+        StringBuilder html = new StringBuilder(64 * 1024 + 64);
+        while (html.length() < 60 * 1024) {
+            html.append("<a href=\"javascript:void(0)\" onclick=on onmouseover=on>");
+        }
+        html.append("<".repeat(4 * 1024));
+        return html.toString();
+    }
+
+    /**
+     * Tag names as clients send them, a few carrying stray markup.
+     */
+    static Set<String> tags(int count) {
+        Random random = new Random(SEED);
+        Set<String> tags = new LinkedHashSet<>();
+        while (tags.size() < count) {
+            String tag = word(random) + "-" + tags.size();
+            tags.add(random.nextInt(5) == 0 ? "<b>" + tag + "</b>" : tag);
+        }
+        return tags;
+    }
+
+    private static String html(Random random, int minLength) {
+        StringBuilder html = new StringBuilder(minLength + 256);
+        while (html.length() < minLength) {
+            // Dangerous fragments are the last four; keep them to roughly one in ten
+            int fragment = random.nextInt(10) == 0
+                    ? FRAGMENTS.length - 1 - random.nextInt(4)
+                    : random.nextInt(FRAGMENTS.length - 4);
+            html.append(FRAGMENTS[fragment].formatted(sentence(random), sentence(random))).append('\n');
+        }
+        return html.toString();
+    }
+
+    private static String sentence(Random random) {
+        StringBuilder sentence = new StringBuilder();
+        int words = 3 + random.nextInt(10);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(word(random));
+        }
+        return sentence.toString();
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
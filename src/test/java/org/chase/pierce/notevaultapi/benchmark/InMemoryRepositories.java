@@ -0,0 +1,80 @@
+package org.chase.pierce.notevaultapi.benchmark;
+
+import org.chase.pierce.notevaultapi.entity.Note;
+import org.chase.pierce.notevaultapi.entity.Tag;
+import org.chase.pierce.notevaultapi.repository.NoteRepository;
+import org.chase.pierce.notevaultapi.repository.TagRepository;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Map-backed Mockito stubs of the repositories, answering the calls the write path makes, so benchmarks
+ * measure the service rather than a database. Any other call fails with the name of the method, so a
+ * change to the write path shows up on the benchmark's setup instead of as a skewed score.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    static NoteRepository noteRepository() {
+        AtomicLong ids = new AtomicLong();
+        NoteRepository repository = stub(NoteRepository.class);
+        doAnswer(invocation -> {
+            Note note = invocation.getArgument(0);
+            note.setId(ids.incrementAndGet());
+            return note;
+        }).when(repository).save(any(Note.class));
+        return repository;
+    }
+
+    static TagRepository tagRepository() {
+        AtomicLong ids = new AtomicLong();
+        Map<String, Tag> tags = new ConcurrentHashMap<>();
+        TagRepository repository = stub(TagRepository.class);
+        doAnswer(invocation -> {
+            List<Tag> found = new ArrayList<>();
+            for (String name : invocation.<Collection<String>>getArgument(0)) {
+                Tag tag = tags.get(name);
+                if (tag != null) {
+                    found.add(tag);
+                }
+            }
+            return found;
+        }).when(repository).findByNameIn(any());
+        doAnswer(invocation -> {
+            List<Tag> inserted = new ArrayList<>();
+            for (String name : invocation.<String[]>getArgument(0)) {
+                tags.computeIfAbsent(name, key -> {
+                    Tag tag = new Tag();
+                    tag.setId(ids.incrementAndGet());
+                    tag.setName(key);
+                    inserted.add(tag);
+                    return tag;
+                });
+            }
+            return inserted;
+        }).when(repository).insertIfAbsent(any());
+        return repository;
+    }
+
+    // stubOnly keeps Mockito from recording every invocation, which would grow without bound over a run
+    private static <T> T stub(Class<T> type) {
+        Answer<Object> unexpected = invocation -> {
+            throw new IllegalStateException(type.getSimpleName() + "." + invocation.getMethod().getName()
+                    + " is not stubbed for benchmarks; the write path changed, see InMemoryRepositories");
+        };
+        return mock(type, withSettings().stubOnly().defaultAnswer(unexpected));
+    }
+}
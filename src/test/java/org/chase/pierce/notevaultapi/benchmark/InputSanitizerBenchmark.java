@@ -0,0 +1,71 @@
+package org.chase.pierce.notevaultapi.benchmark;
+
+import org.chase.pierce.notevaultapi.util.InputSanitizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InputSanitizerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Content {
+
+        @Param({"small", "large", "adversarial"})
+        public String corpus;
+
+        String html;
+
+        @Setup
+        public void setUp() {
+            html = switch (corpus) {
+                case "large" -> BenchmarkCorpus.largeNote();
+                case "adversarial" -> BenchmarkCorpus.adversarialNote();
+                default -> BenchmarkCorpus.smallNote();
+            };
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Tags {
+
+        String[] names;
+
+        @Setup
+        public void setUp() {
+            names = BenchmarkCorpus.tags(20).toArray(String[]::new);
+        }
+    }
+
+    @Benchmark
+    public String sanitizeContent(Content content) {
+        return InputSanitizer.sanitizeContent(content.html);
+    }
+
+    @Benchmark
+    public String stripAllHtml(Content content) {
+        return InputSanitizer.stripAllHtml(content.html);
+    }
+
+    @Benchmark
+    public void sanitizePlainTextTags(Tags tags, Blackhole blackhole) {
+        for (String name : tags.names) {
+            blackhole.consume(InputSanitizer.sanitizePlainText(name));
+        }
+    }
+}
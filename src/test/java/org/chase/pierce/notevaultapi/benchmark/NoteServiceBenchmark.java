@@ -0,0 +1,65 @@
+package org.chase.pierce.notevaultapi.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.chase.pierce.notevaultapi.dto.CreateNoteRequest;
+import org.chase.pierce.notevaultapi.entity.Note;
+import org.chase.pierce.notevaultapi.service.NoteService;
+import org.chase.pierce.notevaultapi.service.TagCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The create path without a database: sanitizing the request, resolving tags through the tag cache
+ * and handing the note to the repository. After the first invocation every tag is a cache hit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NoteServiceBenchmark {
+
+    @Param({"small", "large"})
+    public String corpus;
+
+    @Param({"0", "5", "20"})
+    public int tagCount;
+
+    private NoteService noteService;
+    private CreateNoteRequest request;
+
+    @Setup
+    public void setUp() {
+        TagCache tagCache = new TagCache(10_000, Duration.ofHours(1),
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        noteService = new NoteService(InMemoryRepositories.noteRepository(), InMemoryRepositories.tagRepository(),
+                null, tagCache);
+
+        request = new CreateNoteRequest();
+        request.setName("Quarterly <b>planning</b>");
+        request.setContent("large".equals(corpus) ? BenchmarkCorpus.largeNote() : BenchmarkCorpus.smallNote());
+        request.setTags(BenchmarkCorpus.tags(tagCount));
+
+        // Runs the write path once against the stubs, so a repository call they do not answer fails here
+        createNote();
+    }
+
+    @Benchmark
+    public Note createNote() {
+        return noteService.createNote(request, "benchmark_user");
+    }
+}
@@ -0,0 +1,157 @@
+package org.chase.pierce.notevaultapi.benchmark;
+
+import org.chase.pierce.notevaultapi.config.WebConfig;
+import org.chase.pierce.notevaultapi.dto.NoteSummary;
+import org.chase.pierce.notevaultapi.entity.Note;
+import org.chase.pierce.notevaultapi.entity.Tag;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.jackson.autoconfigure.JacksonAutoConfiguration;
+import org.springframework.boot.jackson.autoconfigure.JacksonProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import tools.jackson.databind.JacksonModule;
+import tools.jackson.databind.JavaType;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Writing and reading note responses as JSON, CBOR and Smile: a typical note, a note with 1 MB of content and a
+ * listing page of 50 summaries. The mappers are the ones the app serves: Boot's JSON and CBOR mappers and
+ * {@link WebConfig#smileMapper}, built from the same {@code spring.jackson.*} defaults. Each result also reports the
+ * size of the payload in bytes as the {@code bytes} counter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayloadFormatBenchmark {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 1, 15, 10, 30);
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"typical", "large", "page"})
+    public String payload;
+
+    private ObjectMapper mapper;
+    private Object value;
+    private JavaType type;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(JacksonAutoConfiguration.class))
+                .run(context -> mapper = switch (format) {
+                    case "cbor" -> context.getBean(CBORMapper.class);
+                    case "smile" -> WebConfig.smileMapper(context.getBean(JacksonProperties.class),
+                            context.getBeanProvider(JacksonModule.class).orderedStream().toList());
+                    default -> context.getBean(JsonMapper.class);
+                });
+        value = switch (payload) {
+            case "large" -> note(BenchmarkCorpus.largeNote());
+            case "page" -> IntStream.rangeClosed(1, 50).mapToObj(PayloadFormatBenchmark::summary).toList();
+            default -> note(BenchmarkCorpus.smallNote());
+        };
+        type = value instanceof List
+                ? mapper.getTypeFactory().constructCollectionType(List.class, NoteSummary.class)
+                : mapper.constructType(Note.class);
+        encoded = mapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public byte[] write(Size size) {
+        byte[] written = mapper.writeValueAsBytes(value);
+        size.record(written.length);
+        return written;
+    }
+
+    @Benchmark
+    public Object read(Size size) {
+        size.record(encoded.length);
+        return mapper.readValue(encoded, type);
+    }
+
+    /**
+     * The payload size, reported next to the time of each benchmark. JMH sums the counter over the iterations of a
+     * run, so it is only set in the last one and reads as the size of one payload.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Size {
+
+        public long bytes;
+
+        private int measured;
+        private boolean last;
+
+        @Setup(Level.Iteration)
+        public void startIteration(IterationParams params) {
+            bytes = 0;
+            if (params.getType() == IterationType.MEASUREMENT) {
+                measured++;
+            }
+            last = params.getType() == IterationType.MEASUREMENT && measured == params.getCount();
+        }
+
+        void record(int length) {
+            if (last) {
+                bytes = length;
+            }
+        }
+    }
+
+    private static Note note(String content) {
+        Note note = new Note();
+        note.setId(1L);
+        note.setName("Quarterly planning");
+        note.setContent(content);
+        note.setUserId("user_1");
+        note.setTags(tags());
+        note.setCreatedAt(CREATED);
+        note.setModifiedAt(CREATED.plusHours(4));
+        return note;
+    }
+
+    private static Set<Tag> tags() {
+        List<String> names = List.copyOf(BenchmarkCorpus.tags(5));
+        return IntStream.range(0, names.size()).mapToObj(i -> {
+            Tag tag = new Tag();
+            tag.setId(i + 1L);
+            tag.setName(names.get(i));
+            return tag;
+        }).collect(Collectors.toSet());
+    }
+
+    private static NoteSummary summary(int id) {
+        return new NoteSummary((long) id, "Note " + id, "user_1", new NoteSummary.NotebookRef(1L, "Work Notes"),
+                Set.of(new NoteSummary.TagRef(1L, "work"), new NoteSummary.TagRef(2L, "planning")),
+                CREATED.plusMinutes(id), CREATED.plusMinutes(id + 30));
+    }
+}
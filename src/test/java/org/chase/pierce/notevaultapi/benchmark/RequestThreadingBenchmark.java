@@ -0,0 +1,113 @@
+package org.chase.pierce.notevaultapi.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.chase.pierce.notevaultapi.NoteVaultApiApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the running application on platform and on virtual threads: 1000 clients, each sending its next
+ * request as soon as the last one is answered, against the default Hikari pool of 10 connections. Throughput comes
+ * from the thrpt run and p99 latency from the sample run; raise the client count with {@code -t}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(1000)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestThreadingBenchmark {
+
+    private static final int NOTES = 10_000;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.builder().setServerConfig("max_connections", "50").start();
+        context = new SpringApplicationBuilder(NoteVaultApiApplication.class)
+                .run("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=",
+                        "--spring.docker.compose.enabled=false",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--server.port=0",
+                        "--server.address=127.0.0.1",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=warn");
+        seed(context.getBean(JdbcTemplate.class));
+        baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1/notes";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        context.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public int getNote() throws IOException, InterruptedException {
+        return send(baseUrl + "/" + ThreadLocalRandom.current().nextInt(1, NOTES + 1));
+    }
+
+    @Benchmark
+    public int listNotes() throws IOException, InterruptedException {
+        return send(baseUrl + "?limit=20&tags=tag_" + ThreadLocalRandom.current().nextInt(1, 21));
+    }
+
+    private int send(String url) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(url + " answered " + response.statusCode());
+        }
+        return response.body().length;
+    }
+
+    // Requests without credentials run as default_user, so every note is theirs
+    private static void seed(JdbcTemplate jdbc) {
+        jdbc.execute("""
+                INSERT INTO ud.note (id, name, content, user_id, created_at, modified_at)
+                SELECT n, 'note ' || n, '<p>content ' || n || '</p>', 'default_user',
+                       now() - n * interval '1 minute', now() - n * interval '1 minute'
+                FROM generate_series(1, %d) n;
+                SELECT setval('ud.note_id_seq', %d);
+                INSERT INTO ud.tags (name) SELECT 'tag_' || k FROM generate_series(1, 20) k;
+                INSERT INTO ud.note_tags (note_id, tag_id)
+                SELECT n, 1 + (n * k) %% 20 FROM generate_series(1, %d) n, generate_series(1, 3) k
+                ON CONFLICT DO NOTHING;
+                """.formatted(NOTES, NOTES, NOTES));
+        jdbc.execute("VACUUM ANALYZE");
+    }
+}
@@ -0,0 +1,119 @@
+package org.chase.pierce.notevaultapi.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.chase.pierce.notevaultapi.dto.NoteCursor;
+import org.chase.pierce.notevaultapi.dto.NoteFilter;
+import org.chase.pierce.notevaultapi.dto.NotePage;
+import org.chase.pierce.notevaultapi.dto.NoteSummary;
+import org.chase.pierce.notevaultapi.dto.TagMode;
+import org.chase.pierce.notevaultapi.entity.Note;
+import org.chase.pierce.notevaultapi.repository.NoteRepository;
+import org.chase.pierce.notevaultapi.service.NoteService;
+import org.chase.pierce.notevaultapi.service.TagCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The first page of a tag-filtered listing against PostgreSQL migrated by Flyway. Tag k sits on a nested share of
+ * the notes, from 19% for tag 1 down to 4% for tag 20, so asking for all of the first n tags still matches notes
+ * and every tag added makes the match-all filter more selective while the match-any filter stays as broad.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TagFilterBenchmark {
+
+    private static final int NOTES = 100_000;
+    private static final int TAGS = 20;
+
+    @Param({"1", "5", "20"})
+    public int tagCount;
+
+    @Param({"ANY", "ALL"})
+    public TagMode tagMode;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private NoteService noteService;
+    private NoteFilter filter;
+
+    @Setup
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        context = new SpringApplicationBuilder(Database.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=",
+                        "--spring.docker.compose.enabled=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=warn");
+        seed(context.getBean(JdbcTemplate.class));
+        noteService = context.getBean(NoteService.class);
+
+        Set<String> tags = IntStream.rangeClosed(1, tagCount).mapToObj(k -> "tag_" + k).collect(Collectors.toSet());
+        filter = NoteFilter.builder().tags(tags).tagMode(tagMode).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public NotePage<NoteSummary> firstPage() {
+        return noteService.getNoteSummariesByFilters(filter, NoteCursor.START, 50);
+    }
+
+    private static void seed(JdbcTemplate jdbc) {
+        jdbc.execute("""
+                INSERT INTO ud.note (id, name, content, user_id, created_at, modified_at)
+                SELECT n, 'note ' || n, 'content ' || n, 'user_' || (n %% 100),
+                       now() - n * interval '1 minute', now() - n * interval '1 minute'
+                FROM generate_series(1, %d) n;
+                SELECT setval('ud.note_id_seq', %d);
+                INSERT INTO ud.tags (name) SELECT 'tag_' || k FROM generate_series(1, %d) k;
+                INSERT INTO ud.note_tags (note_id, tag_id)
+                SELECT n, k FROM generate_series(1, %d) n, generate_series(1, %d) k
+                WHERE (n * 7919) %% 1000 < 200 - 8 * k;
+                """.formatted(NOTES, NOTES, TAGS, NOTES, TAGS));
+        jdbc.execute("VACUUM ANALYZE");
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Note.class)
+    @EnableJpaRepositories(basePackageClasses = NoteRepository.class)
+    @Import({NoteService.class, TagCache.class})
+    static class Database {
+    }
+}
@@ -0,0 +1,81 @@
+package org.chase.pierce.notevaultapi.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncAccessLogTest {
+
+    private final List<String> lines = new CopyOnWriteArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private static AccessLogEvent event(String path, int status) {
+        return new AccessLogEvent(0L, "GET", path, status, 1500L, "testuser");
+    }
+
+    @Test
+    void testWritesQueuedEventsAsJsonLines() throws Exception {
+        AsyncAccessLog accessLog = new AsyncAccessLog(10, lines::add, meterRegistry);
+        accessLog.offer(event("/api/v1/notes", 200));
+        accessLog.offer(event("/api/v1/notes/1", 404));
+
+        accessLog.start();
+        accessLog.stop();
+
+        assertEquals(List.of(
+                "{\"ts\":\"1970-01-01T00:00:00Z\",\"method\":\"GET\",\"path\":\"/api/v1/notes\",\"status\":200,\"durationUs\":1500,\"user\":\"testuser\"}",
+                "{\"ts\":\"1970-01-01T00:00:00Z\",\"method\":\"GET\",\"path\":\"/api/v1/notes/1\",\"status\":404,\"durationUs\":1500,\"user\":\"testuser\"}"),
+                lines);
+    }
+
+    @Test
+    void testDropsAndCountsWhenFull() {
+        AsyncAccessLog accessLog = new AsyncAccessLog(1, lines::add, meterRegistry);
+
+        assertTrue(accessLog.offer(event("/a", 200)));
+        assertFalse(accessLog.offer(event("/b", 200)));
+
+        assertEquals(1, accessLog.droppedCount());
+        assertEquals(1.0, meterRegistry.get(AsyncAccessLog.DROPPED_METRIC).counter().count());
+    }
+
+    @Test
+    void testKeepsWritingAfterSinkFails() throws Exception {
+        AsyncAccessLog accessLog = new AsyncAccessLog(10, line -> {
+            if (line.contains("/broken")) {
+                throw new IllegalStateException("appender failed");
+            }
+            lines.add(line);
+        }, meterRegistry);
+        accessLog.offer(event("/a", 200));
+        accessLog.offer(event("/broken", 200));
+        accessLog.offer(event("/b", 200));
+
+        accessLog.start();
+        accessLog.stop();
+
+        assertEquals(2, lines.size());
+        assertEquals(1, accessLog.failedCount());
+        assertEquals(1.0, meterRegistry.get(AsyncAccessLog.FAILED_METRIC).counter().count());
+    }
+
+    @Test
+    void testEscapesStrings() {
+        AsyncAccessLog accessLog = new AsyncAccessLog(1, lines::add, meterRegistry);
+
+        String line = accessLog.format(new AccessLogEvent(0L, "GET", "/a\"b\\c\n\u0001", 200, 1L, null));
+
+        assertTrue(line.contains("\"path\":\"/a\\\"b\\\\c\\n\\u0001\""));
+        assertTrue(line.endsWith("\"user\":null}"));
+    }
+}
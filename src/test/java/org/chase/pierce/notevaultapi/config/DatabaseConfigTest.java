@@ -0,0 +1,30 @@
+package org.chase.pierce.notevaultapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseConfigTest {
+
+    // The permit wait and the pool wait together never exceed the configured connection timeout
+    @ParameterizedTest
+    @CsvSource({"30000, 29000, 1000", "1500, 750, 750", "400, 150, 250"})
+    void testSplitsConnectionTimeoutBetweenPermitAndPool(long timeout, long permitWait, long poolWait) {
+        try (HikariDataSource hikari = new HikariDataSource()) {
+            hikari.setMaximumPoolSize(4);
+            hikari.setConnectionTimeout(timeout);
+
+            Object bean = DatabaseConfig.poolBoundedDataSourcePostProcessor()
+                    .postProcessAfterInitialization(hikari, "dataSource");
+
+            PoolBoundedDataSource dataSource = assertInstanceOf(PoolBoundedDataSource.class, bean);
+            assertEquals(Duration.ofMillis(permitWait), dataSource.getMaxWait());
+            assertEquals(poolWait, hikari.getConnectionTimeout());
+            assertEquals(4, dataSource.availablePermits());
+        }
+    }
+}
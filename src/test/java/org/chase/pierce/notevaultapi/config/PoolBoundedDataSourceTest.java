@@ -0,0 +1,102 @@
+package org.chase.pierce.notevaultapi.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PoolBoundedDataSourceTest {
+
+    private DataSource pool;
+    private PoolBoundedDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        dataSource = new PoolBoundedDataSource(pool, 2, Duration.ofMillis(50));
+    }
+
+    @Test
+    void testTimesOutWhenEveryPermitIsHeld() throws SQLException {
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertEquals(0, dataSource.availablePermits());
+    }
+
+    @Test
+    void testClosingConnectionHandsPermitToWaitingThread() throws Exception {
+        PoolBoundedDataSource single = new PoolBoundedDataSource(pool, 1, Duration.ofSeconds(5));
+        Connection first = single.getConnection();
+
+        CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return single.getConnection();
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+
+        first.close();
+
+        assertNotNull(waiting.get(1, TimeUnit.SECONDS));
+        assertEquals(0, single.availablePermits());
+    }
+
+    @Test
+    void testClosesUnderlyingConnectionAndReleasesOnlyOnce() throws SQLException {
+        Connection connection = dataSource.getConnection();
+
+        connection.close();
+        connection.close();
+
+        assertEquals(2, dataSource.availablePermits());
+    }
+
+    @Test
+    void testReleasesPermitWhenPoolFails() throws SQLException {
+        when(pool.getConnection()).thenThrow(new SQLTransientConnectionException("pool timeout"));
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertEquals(2, dataSource.availablePermits());
+    }
+
+    @Test
+    void testConnectionDelegatesToPool() throws SQLException {
+        Connection pooled = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(pooled);
+
+        Connection connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+        connection.close();
+
+        verify(pooled).setAutoCommit(false);
+        verify(pooled).close();
+        assertEquals(connection, connection);
+        assertNotEquals(pooled, connection);
+    }
+
+    @Test
+    void testReportsWaitingThreads() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        dataSource.bindTo(meterRegistry);
+
+        assertEquals(0.0, meterRegistry.get(PoolBoundedDataSource.WAITING_METRIC).gauge().value());
+    }
+}
@@ -0,0 +1,65 @@
+package org.chase.pierce.notevaultapi.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RequestLoggingFilterTest {
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @Mock
+    private FilterChain filterChain;
+
+    private final List<String> lines = new CopyOnWriteArrayList<>();
+
+    private List<String> run(double successSampleRate, int... statuses) throws Exception {
+        AsyncAccessLog accessLog = new AsyncAccessLog(10, lines::add, new SimpleMeterRegistry());
+        RequestLoggingFilter filter = new RequestLoggingFilter(accessLog, successSampleRate);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestURI()).thenReturn("/api/v1/notes");
+        for (int status : statuses) {
+            when(response.getStatus()).thenReturn(status);
+            filter.doFilterInternal(request, response, filterChain);
+        }
+        accessLog.start();
+        filter.destroy();
+        return lines;
+    }
+
+    @Test
+    void testQueuesEveryRequestByDefault() throws Exception {
+        List<String> written = run(1.0, 200, 201, 404);
+
+        assertEquals(3, written.size());
+        assertTrue(written.get(2).contains("\"status\":404"));
+        assertTrue(written.get(2).contains("\"user\":\"anonymous\""));
+        verify(filterChain, times(3)).doFilter(request, response);
+    }
+
+    @Test
+    void testSamplingOnlyAppliesToSuccess() throws Exception {
+        List<String> written = run(0.0, 200, 204, 302, 400, 503);
+
+        assertEquals(3, written.size());
+        assertTrue(written.get(0).contains("\"status\":302"));
+        assertTrue(written.get(1).contains("\"status\":400"));
+        assertTrue(written.get(2).contains("\"status\":503"));
+    }
+}
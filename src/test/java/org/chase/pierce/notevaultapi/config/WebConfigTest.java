@@ -0,0 +1,100 @@
+package org.chase.pierce.notevaultapi.config;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.chase.pierce.notevaultapi.entity.Note;
+import org.chase.pierce.notevaultapi.entity.Notebook;
+import org.chase.pierce.notevaultapi.entity.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.jackson.autoconfigure.JacksonAutoConfiguration;
+import org.springframework.boot.jackson.autoconfigure.JacksonProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import tools.jackson.databind.JacksonModule;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.module.SimpleModule;
+import tools.jackson.databind.ser.std.ToStringSerializer;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebConfigTest {
+
+    record Sample(String firstName, String lastName) {
+    }
+
+    @Test
+    void testSmileMapperAppliesJacksonProperties() {
+        JacksonProperties properties = new JacksonProperties();
+        properties.setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL);
+        properties.setPropertyNamingStrategy("SNAKE_CASE");
+        properties.getSerialization().put(SerializationFeature.WRAP_ROOT_VALUE, true);
+
+        SmileMapper mapper = WebConfig.smileMapper(properties, List.of());
+
+        Map<?, ?> decoded = mapper.readValue(mapper.writeValueAsBytes(new Sample("Ada", null)), Map.class);
+        assertEquals(Map.of("Sample", Map.of("first_name", "Ada")), decoded);
+    }
+
+    // Boot builds the JSON and CBOR mappers and smileMapper repeats what it applies, so all three must agree on the
+    // fields of a note and how its dates are written, with Boot's defaults and with settings that change both
+    @ParameterizedTest
+    @ValueSource(strings = {"", "spring.jackson.property-naming-strategy=SNAKE_CASE,"
+            + "spring.jackson.default-property-inclusion=non_null,"
+            + "spring.jackson.datatype.datetime.write-dates-as-timestamps=true"})
+    void testNoteReadsTheSameAsJsonCborAndSmile(String properties) {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(JacksonAutoConfiguration.class))
+                .withPropertyValues(properties.isEmpty() ? new String[0] : properties.split(","))
+                .run(context -> {
+                    SmileMapper smileMapper = WebConfig.smileMapper(context.getBean(JacksonProperties.class),
+                            context.getBeanProvider(JacksonModule.class).orderedStream().toList());
+                    Map<?, ?> json = roundTrip(context.getBean(JsonMapper.class), note());
+
+                    assertEquals(json, roundTrip(context.getBean(CBORMapper.class), note()));
+                    assertEquals(json, roundTrip(smileMapper, note()));
+                });
+    }
+
+    private static Map<?, ?> roundTrip(ObjectMapper mapper, Note note) {
+        return mapper.readValue(mapper.writeValueAsBytes(note), Map.class);
+    }
+
+    private static Note note() {
+        Tag tag = new Tag();
+        tag.setId(2L);
+        tag.setName("work");
+        Notebook notebook = new Notebook();
+        notebook.setId(3L);
+        notebook.setName("Projects");
+
+        Note note = new Note();
+        note.setId(1L);
+        note.setName("Standup");
+        note.setUserId("testuser");
+        note.setNotebook(notebook);
+        note.setTags(Set.of(tag));
+        note.setCreatedAt(LocalDateTime.of(2025, 1, 15, 10, 30));
+        note.setModifiedAt(LocalDateTime.of(2025, 1, 15, 14, 45, 12, 500_000_000));
+        return note;
+    }
+
+    @Test
+    void testSmileMapperRegistersModuleBeans() {
+        SimpleModule module = new SimpleModule().addSerializer(Sample.class, ToStringSerializer.instance);
+
+        SmileMapper mapper = WebConfig.smileMapper(new JacksonProperties(), List.of(module));
+
+        assertEquals("Sample[firstName=Ada, lastName=Lovelace]",
+                mapper.readValue(mapper.writeValueAsBytes(new Sample("Ada", "Lovelace")), String.class));
+    }
+}
@@ -2,12 +2,27 @@ package org.chase.pierce.notevaultapi.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.chase.pierce.notevaultapi.dto.CreateNoteRequest;
+import org.chase.pierce.notevaultapi.dto.CreateNotesRequest;
+import org.chase.pierce.notevaultapi.dto.NoteCursor;
+import org.chase.pierce.notevaultapi.dto.NoteDeleteResult;
+import org.chase.pierce.notevaultapi.dto.NoteFilter;
+import org.chase.pierce.notevaultapi.dto.NotePage;
+import org.chase.pierce.notevaultapi.dto.NoteNameMatch;
+import org.chase.pierce.notevaultapi.dto.NoteSearchPage;
+import org.chase.pierce.notevaultapi.dto.NoteSearchResult;
+import org.chase.pierce.notevaultapi.dto.NoteSort;
+import org.chase.pierce.notevaultapi.dto.NoteSummary;
+import org.chase.pierce.notevaultapi.dto.PatchNoteRequest;
+import org.chase.pierce.notevaultapi.dto.SearchCursor;
+import org.chase.pierce.notevaultapi.dto.TagMode;
 import org.chase.pierce.notevaultapi.dto.UpdateNoteRequest;
 import org.chase.pierce.notevaultapi.entity.Note;
 import org.chase.pierce.notevaultapi.entity.Role;
 import org.chase.pierce.notevaultapi.entity.User;
 import org.chase.pierce.notevaultapi.exception.GlobalExceptionHandler;
+import org.chase.pierce.notevaultapi.exception.NoteVersionMismatchException;
 import org.chase.pierce.notevaultapi.exception.UnauthorizedAccessException;
+import org.chase.pierce.notevaultapi.security.DefaultUserSnapshot;
 import org.chase.pierce.notevaultapi.security.UserPrincipal;
 import org.chase.pierce.notevaultapi.service.CustomUserDetailsService;
 import org.chase.pierce.notevaultapi.service.NoteService;
@@ -15,10 +30,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
@@ -26,19 +44,39 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.chase.pierce.notevaultapi.exception.NoteNotFoundException;
 import org.chase.pierce.notevaultapi.config.SecurityConfig;
 import org.springframework.dao.QueryTimeoutException;
-
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -56,6 +94,9 @@ class NoteControllerTest {
     @MockitoBean
     private CustomUserDetailsService customUserDetailsService;
 
+    @MockitoBean
+    private DefaultUserSnapshot defaultUserSnapshot;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @BeforeEach
@@ -67,8 +108,7 @@ class NoteControllerTest {
         defaultUser.setPassword("encoded");
         defaultUser.setRole(Role.USER);
         defaultUser.setEnabled(true);
-        when(customUserDetailsService.loadUserByUsername("default_user"))
-                .thenReturn(new UserPrincipal(defaultUser));
+        when(defaultUserSnapshot.get()).thenReturn(new UserPrincipal(defaultUser));
     }
 
     private UserPrincipal testUser() {
@@ -91,23 +131,26 @@ class NoteControllerTest {
         return new UserPrincipal(user);
     }
 
+    private static NoteSummary summary(long id, String name) {
+        return new NoteSummary(id, name, "testuser", null,
+                Set.of(new NoteSummary.TagRef(1L, "work")), LocalDateTime.of(2025, 1, 15, 10, 30), null);
+    }
+
+    private static NoteFilter.NoteFilterBuilder ownNotes() {
+        return NoteFilter.builder().userId("testuser");
+    }
+
+    @SafeVarargs
+    private static <T> NotePage<T> page(T... items) {
+        return new NotePage<>(List.of(items), null);
+    }
+
     // --- GET /notes ---
 
     @Test
     void testGetAllNotesReturnsOk() throws Exception {
-        Note note1 = new Note();
-        note1.setId(1L);
-        note1.setName("Note 1");
-        note1.setContent("Content 1");
-        note1.setUserId("testuser");
-
-        Note note2 = new Note();
-        note2.setId(2L);
-        note2.setName("Note 2");
-        note2.setContent("Content 2");
-        note2.setUserId("testuser");
-
-        when(noteService.getNotesByFilters(any(), eq("testuser"), any())).thenReturn(List.of(note1, note2));
+        when(noteService.getNoteSummariesByFilters(eq(ownNotes().build()), any(), anyInt()))
+                .thenReturn(page(summary(1L, "Note 1"), summary(2L, "Note 2")));
 
         mockMvc.perform(get("/api/v1/notes").with(user(testUser())))
                 .andExpect(status().isOk())
@@ -118,9 +161,59 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$[1].name").value("Note 2"));
     }
 
+    @Test
+    void testGetNotesCarriesChangeStampAsETag() throws Exception {
+        when(noteService.getChangeStamp("testuser")).thenReturn(42L);
+        when(noteService.getNoteSummariesByFilters(any(), any(), anyInt())).thenReturn(page(summary(1L, "Note 1")));
+
+        mockMvc.perform(get("/api/v1/notes").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"42\""));
+    }
+
+    @Test
+    void testGetNotesReturns304WhenNothingChanged() throws Exception {
+        when(noteService.getChangeStamp("testuser")).thenReturn(42L);
+
+        mockMvc.perform(get("/api/v1/notes").header(HttpHeaders.IF_NONE_MATCH, "\"42\"").with(user(testUser())))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"42\""))
+                .andExpect(content().string(""));
+
+        verify(noteService, never()).getNoteSummariesByFilters(any(), any(), anyInt());
+    }
+
+    // With If-None-Match the page is only loaded once the copy turns out stale, and still links the next page
+    @Test
+    void testGetNotesWithStaleETagLoadsPageWithNextLink() throws Exception {
+        NoteCursor next = new NoteCursor(LocalDateTime.of(2025, 1, 15, 10, 30), 7L);
+
+        when(noteService.getChangeStamp("testuser")).thenReturn(43L);
+        when(noteService.getNoteSummariesByFilters(eq(ownNotes().build()), eq(NoteCursor.START), eq(1)))
+                .thenReturn(new NotePage<>(List.of(summary(7L, "Page Note")), next));
+
+        mockMvc.perform(get("/api/v1/notes").param("limit", "1")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"42\"").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"43\""))
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(header().string("Link",
+                        "<http://localhost/api/v1/notes?cursor=" + next.encode() + "&limit=1>; rel=\"next\""));
+    }
+
+    @Test
+    void testAdminListingUsesStampOfAllNotes() throws Exception {
+        when(noteService.getChangeStamp(null)).thenReturn(7L);
+        when(noteService.getNoteSummariesByFilters(any(), any(), anyInt())).thenReturn(page());
+
+        mockMvc.perform(get("/api/v1/notes").header(HttpHeaders.IF_NONE_MATCH, "\"6\"").with(user(adminUser())))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"7\""));
+    }
+
     @Test
     void testGetAllNotesReturnsEmptyList() throws Exception {
-        when(noteService.getNotesByFilters(any(), eq("testuser"), any())).thenReturn(List.of());
+        when(noteService.getNoteSummariesByFilters(eq(ownNotes().build()), any(), anyInt())).thenReturn(page());
 
         mockMvc.perform(get("/api/v1/notes").with(user(testUser())))
                 .andExpect(status().isOk())
@@ -129,11 +222,8 @@ class NoteControllerTest {
 
     @Test
     void testAdminGetsAllNotes() throws Exception {
-        Note note = new Note();
-        note.setId(1L);
-        note.setName("Any Note");
-
-        when(noteService.getAllNotes()).thenReturn(List.of(note));
+        when(noteService.getNoteSummariesByFilters(eq(NoteFilter.NONE), any(), anyInt()))
+                .thenReturn(page(summary(1L, "Any Note")));
 
         mockMvc.perform(get("/api/v1/notes").with(user(adminUser())))
                 .andExpect(status().isOk())
@@ -142,11 +232,8 @@ class NoteControllerTest {
 
     @Test
     void testGetNotesByTagsReturnsOk() throws Exception {
-        Note note = new Note();
-        note.setId(1L);
-        note.setName("Tagged Note");
-
-        when(noteService.getNotesByFilters(eq(Set.of("work")), any(), any())).thenReturn(List.of(note));
+        when(noteService.getNoteSummariesByFilters(eq(ownNotes().tags(Set.of("work")).build()), any(), anyInt()))
+                .thenReturn(page(summary(1L, "Tagged Note")));
 
         mockMvc.perform(get("/api/v1/notes").param("tags", "work").with(user(testUser())))
                 .andExpect(status().isOk())
@@ -155,12 +242,29 @@ class NoteControllerTest {
     }
 
     @Test
-    void testGetNotesByNotebookIdReturnsOk() throws Exception {
-        Note note = new Note();
-        note.setId(1L);
-        note.setName("Notebook Note");
+    void testGetNotesByAllTagsReturnsOk() throws Exception {
+        NoteFilter filter = ownNotes().tags(Set.of("work", "urgent")).tagMode(TagMode.ALL).build();
+        when(noteService.getNoteSummariesByFilters(eq(filter), any(), anyInt()))
+                .thenReturn(page(summary(1L, "Tagged Note")));
+
+        mockMvc.perform(get("/api/v1/notes").param("tags", "work", "urgent").param("tagMode", "all")
+                        .with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Tagged Note"));
+    }
+
+    @Test
+    void testGetNotesWithUnknownTagModeReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/notes").param("tags", "work").param("tagMode", "some")
+                        .with(user(testUser())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid value for parameter 'tagMode'. Expected type: TagMode"));
+    }
 
-        when(noteService.getNotesByFilters(any(), any(), eq(5L))).thenReturn(List.of(note));
+    @Test
+    void testGetNotesByNotebookIdReturnsOk() throws Exception {
+        when(noteService.getNoteSummariesByFilters(eq(ownNotes().notebookId(5L).build()), any(), anyInt()))
+                .thenReturn(page(summary(1L, "Notebook Note")));
 
         mockMvc.perform(get("/api/v1/notes").param("notebookId", "5").with(user(testUser())))
                 .andExpect(status().isOk())
@@ -168,6 +272,73 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$[0].name").value("Notebook Note"));
     }
 
+    @Test
+    void testGetNotesListsSummariesWithoutContent() throws Exception {
+        when(noteService.getNoteSummariesByFilters(eq(ownNotes().build()), any(), anyInt()))
+                .thenReturn(page(summary(1L, "Note 1")));
+
+        mockMvc.perform(get("/api/v1/notes").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].content").doesNotExist())
+                .andExpect(jsonPath("$[0].tags[0].name").value("work"))
+                .andExpect(jsonPath("$[0].createdAt").exists());
+
+        verify(noteService, never()).getNotesByFilters(any(), any(), anyInt());
+    }
+
+    @Test
+    void testGetNotesIncludesContentWhenRequested() throws Exception {
+        Note note = new Note();
+        note.setId(1L);
+        note.setName("Note 1");
+        note.setContent("Content 1");
+        note.setUserId("testuser");
+
+        when(noteService.getNotesByFilters(eq(ownNotes().build()), any(), anyInt())).thenReturn(page(note));
+
+        mockMvc.perform(get("/api/v1/notes").param("include", "content").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].content").value("Content 1"));
+
+        verify(noteService, never()).getNoteSummariesByFilters(any(), any(), anyInt());
+    }
+
+    @Test
+    void testGetNotesPassesDateFiltersAndSort() throws Exception {
+        NoteFilter filter = ownNotes()
+                .modifiedSince(LocalDateTime.of(2025, 1, 1, 0, 0))
+                .createdFrom(LocalDateTime.of(2024, 6, 1, 0, 0))
+                .createdBefore(LocalDateTime.of(2024, 7, 1, 12, 30, 15))
+                .sort(NoteSort.CREATED_ASC)
+                .build();
+        when(noteService.getNoteSummariesByFilters(eq(filter), any(), anyInt())).thenReturn(page());
+
+        mockMvc.perform(get("/api/v1/notes")
+                        .param("modifiedSince", "2025-01-01T00:00:00")
+                        .param("createdFrom", "2024-06-01T00:00")
+                        .param("createdBefore", "2024-07-01T12:30:15")
+                        .param("sort", "CREATED_ASC")
+                        .with(user(testUser())))
+                .andExpect(status().isOk());
+
+        verify(noteService).getNoteSummariesByFilters(eq(filter), eq(NoteCursor.START), eq(50));
+    }
+
+    @Test
+    void testGetNotesReturns400WhenSortUnknown() throws Exception {
+        mockMvc.perform(get("/api/v1/notes").param("sort", "NAME").with(user(testUser())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid parameter"))
+                .andExpect(jsonPath("$.message").value("Invalid value for parameter 'sort'. Expected type: NoteSort"));
+    }
+
+    @Test
+    void testGetNotesReturns400WhenDateInvalid() throws Exception {
+        mockMvc.perform(get("/api/v1/notes").param("modifiedSince", "yesterday").with(user(testUser())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid parameter"));
+    }
+
     @Test
     void testGetNotesReturns400WhenNotebookIdNotNumeric() throws Exception {
         mockMvc.perform(get("/api/v1/notes").param("notebookId", "abc").with(user(testUser())))
@@ -176,6 +347,217 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$.message").value("Invalid value for parameter 'notebookId'. Expected type: Long"));
     }
 
+    @Test
+    void testGetNotesAddsNextLinkWhenMorePagesExist() throws Exception {
+        NoteCursor next = new NoteCursor(LocalDateTime.of(2025, 1, 15, 10, 30), 7L);
+
+        when(noteService.getNoteSummariesByFilters(eq(ownNotes().build()), eq(NoteCursor.START), eq(1)))
+                .thenReturn(new NotePage<>(List.of(summary(7L, "Page Note")), next));
+
+        mockMvc.perform(get("/api/v1/notes").param("limit", "1").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().string("Link",
+                        "<http://localhost/api/v1/notes?cursor=" + next.encode() + "&limit=1>; rel=\"next\""));
+    }
+
+    @Test
+    void testGetNotesOmitsNextLinkOnLastPage() throws Exception {
+        when(noteService.getNoteSummariesByFilters(eq(ownNotes().build()), any(), anyInt())).thenReturn(page());
+
+        mockMvc.perform(get("/api/v1/notes").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void testGetNotesPassesDecodedCursor() throws Exception {
+        NoteCursor cursor = new NoteCursor(LocalDateTime.of(2025, 1, 15, 10, 30, 0, 123_456_000), 42L);
+
+        when(noteService.getNoteSummariesByFilters(eq(ownNotes().build()), eq(cursor), eq(50))).thenReturn(page());
+
+        mockMvc.perform(get("/api/v1/notes").param("cursor", cursor.encode()).with(user(testUser())))
+                .andExpect(status().isOk());
+
+        verify(noteService).getNoteSummariesByFilters(eq(ownNotes().build()), eq(cursor), eq(50));
+    }
+
+    @Test
+    void testGetNotesReturns400WhenCursorInvalid() throws Exception {
+        mockMvc.perform(get("/api/v1/notes").param("cursor", "not-a-cursor").with(user(testUser())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid parameter"));
+    }
+
+    // --- GET /notes/search ---
+
+    @Test
+    void testSearchReturnsRankedResultsForOwnNotes() throws Exception {
+        when(noteService.searchNotes(eq("roadmap"), eq("testuser"), eq(SearchCursor.START), eq(50)))
+                .thenReturn(new NoteSearchPage(List.of(
+                        new NoteSearchResult(summary(3L, "Roadmap"), 0.6079271f, "the <mark>roadmap</mark>")), null));
+
+        mockMvc.perform(get("/api/v1/notes/search").param("q", "roadmap").param("userId", "someoneelse")
+                        .with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].note.id").value(3))
+                .andExpect(jsonPath("$[0].note.content").doesNotExist())
+                .andExpect(jsonPath("$[0].rank").value(0.6079271))
+                .andExpect(jsonPath("$[0].snippet").value("the <mark>roadmap</mark>"))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void testAdminSearchesAllNotesOrOneUser() throws Exception {
+        when(noteService.searchNotes(any(), any(), any(), anyInt())).thenReturn(new NoteSearchPage(List.of(), null));
+
+        mockMvc.perform(get("/api/v1/notes/search").param("q", "roadmap").with(user(adminUser())))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/notes/search").param("q", "roadmap").param("userId", "testuser")
+                        .with(user(adminUser())))
+                .andExpect(status().isOk());
+
+        verify(noteService).searchNotes(eq("roadmap"), isNull(), any(), anyInt());
+        verify(noteService).searchNotes(eq("roadmap"), eq("testuser"), any(), anyInt());
+    }
+
+    @Test
+    void testSearchAddsNextLinkAndAcceptsItsCursor() throws Exception {
+        SearchCursor next = new SearchCursor(0.24317084f, 7L);
+        when(noteService.searchNotes(eq("roadmap"), eq("testuser"), eq(SearchCursor.START), eq(1)))
+                .thenReturn(new NoteSearchPage(List.of(new NoteSearchResult(summary(7L, "Page Note"), 0.24317084f, "")), next));
+
+        mockMvc.perform(get("/api/v1/notes/search?q=roadmap&limit=1").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Link",
+                        "<http://localhost/api/v1/notes/search?q=roadmap&cursor=" + next.encode() + "&limit=1>; rel=\"next\""));
+
+        when(noteService.searchNotes(eq("roadmap"), eq("testuser"), eq(next), eq(1)))
+                .thenReturn(new NoteSearchPage(List.of(), null));
+        mockMvc.perform(get("/api/v1/notes/search").param("q", "roadmap").param("limit", "1")
+                        .param("cursor", next.encode()).with(user(testUser())))
+                .andExpect(status().isOk());
+        verify(noteService).searchNotes(eq("roadmap"), eq("testuser"), eq(next), eq(1));
+    }
+
+    static Stream<String> invalidSearchQueries() {
+        return Stream.of("", "   ", "x".repeat(NoteController.MAX_SEARCH_QUERY_LENGTH + 1));
+    }
+
+    @ParameterizedTest(name = "rejects query of length {0}")
+    @MethodSource("invalidSearchQueries")
+    void testSearchReturns400ForBlankOrOversizedQuery(String query) throws Exception {
+        mockMvc.perform(get("/api/v1/notes/search").param("q", query).with(user(testUser())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid parameter"));
+
+        verify(noteService, never()).searchNotes(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testSearchReturns400WhenCursorInvalid() throws Exception {
+        mockMvc.perform(get("/api/v1/notes/search").param("q", "roadmap").param("cursor", "not-a-cursor")
+                        .with(user(testUser())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid parameter"));
+    }
+
+    // --- GET /notes/lookup ---
+
+    @Test
+    void testLookupReturnsClosestNamesForOwnNotes() throws Exception {
+        when(noteService.lookupNotesByName("meetng notes", "testuser", 10)).thenReturn(List.of(
+                new NoteNameMatch(4L, "Meeting Notes", LocalDateTime.of(2025, 1, 15, 10, 0), 0.6923077f)));
+
+        mockMvc.perform(get("/api/v1/notes/lookup").param("q", "  meetng notes ").param("userId", "someoneelse")
+                        .with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(4))
+                .andExpect(jsonPath("$[0].name").value("Meeting Notes"))
+                .andExpect(jsonPath("$[0].score").value(0.6923077));
+    }
+
+    @Test
+    void testAdminLooksUpAllNotesOrOneUser() throws Exception {
+        when(noteService.lookupNotesByName(any(), any(), anyInt())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/notes/lookup").param("q", "meetng").param("limit", "5").with(user(adminUser())))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/notes/lookup").param("q", "meetng").param("userId", "testuser")
+                        .with(user(adminUser())))
+                .andExpect(status().isOk());
+
+        verify(noteService).lookupNotesByName("meetng", null, 5);
+        verify(noteService).lookupNotesByName("meetng", "testuser", 10);
+    }
+
+    static Stream<String> invalidLookupQueries() {
+        return Stream.of("", "ab", "  ab  ", "x".repeat(NoteController.MAX_LOOKUP_QUERY_LENGTH + 1));
+    }
+
+    @ParameterizedTest(name = "rejects query \"{0}\"")
+    @MethodSource("invalidLookupQueries")
+    void testLookupReturns400ForTooShortOrOversizedQuery(String query) throws Exception {
+        mockMvc.perform(get("/api/v1/notes/lookup").param("q", query).with(user(testUser())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid parameter"));
+
+        verify(noteService, never()).lookupNotesByName(any(), any(), anyInt());
+    }
+
+    // --- GET /notes/export ---
+
+    @Test
+    void testExportStreamsOneNotePerLine() throws Exception {
+        Note note1 = new Note();
+        note1.setId(1L);
+        note1.setName("Note 1");
+        note1.setUserId("testuser");
+
+        Note note2 = new Note();
+        note2.setId(2L);
+        note2.setName("Note 2");
+        note2.setUserId("testuser");
+
+        doAnswer(invocation -> {
+            Consumer<Note> sink = invocation.getArgument(1);
+            sink.accept(note1);
+            sink.accept(note2);
+            return null;
+        }).when(noteService).exportNotes(eq("testuser"), any());
+
+        String body = mockMvc.perform(get("/api/v1/notes/export").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"notes.ndjson\""))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(body.endsWith("\n"));
+        assertEquals(1, objectMapper.readTree(lines[0]).get("id").asInt());
+        assertEquals("Note 2", objectMapper.readTree(lines[1]).get("name").asText());
+    }
+
+    @Test
+    void testAdminExportsAllNotes() throws Exception {
+        mockMvc.perform(get("/api/v1/notes/export").with(user(adminUser())))
+                .andExpect(status().isOk());
+
+        verify(noteService).exportNotes(isNull(), any());
+    }
+
+    @Test
+    void testExportReturns503WhenDbUnavailable() throws Exception {
+        doThrow(new QueryTimeoutException("Connection refused")).when(noteService).exportNotes(any(), any());
+
+        mockMvc.perform(get("/api/v1/notes/export").with(user(testUser())))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error").value("Service unavailable"));
+    }
+
     // --- GET /notes/{id} ---
 
     @Test
@@ -196,6 +578,80 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$.userId").value("testuser"));
     }
 
+    @Test
+    void testGetNoteByIdCarriesVersionAsETag() throws Exception {
+        Note note = new Note();
+        note.setId(1L);
+        note.setUserId("testuser");
+        note.setVersion(3L);
+
+        when(noteService.getNoteById(1L, "testuser", Role.USER)).thenReturn(note);
+
+        mockMvc.perform(get("/api/v1/notes/1").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"3\""));
+
+        verify(noteService, never()).getNoteVersion(any(), any(), any());
+    }
+
+    @Test
+    void testGetNoteByIdReturns304WithoutLoadingNote() throws Exception {
+        when(noteService.getNoteVersion(1L, "testuser", Role.USER)).thenReturn(3L);
+
+        mockMvc.perform(get("/api/v1/notes/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\"").with(user(testUser())))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+
+        verify(noteService, never()).getNoteById(any(), any(), any());
+    }
+
+    @Test
+    void testGetNoteByIdReturnsNoteWhenETagIsStale() throws Exception {
+        Note note = new Note();
+        note.setId(1L);
+        note.setUserId("testuser");
+        note.setVersion(4L);
+
+        when(noteService.getNoteVersion(1L, "testuser", Role.USER)).thenReturn(4L);
+        when(noteService.getNoteById(1L, "testuser", Role.USER)).thenReturn(note);
+
+        mockMvc.perform(get("/api/v1/notes/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\"").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    // The note is loaded after the version was checked and may be gone by then
+    @Test
+    void testGetNoteByIdReturns404WhenNoteDeletedAfterVersionCheck() throws Exception {
+        when(noteService.getNoteVersion(1L, "testuser", Role.USER)).thenReturn(4L);
+        when(noteService.getNoteById(1L, "testuser", Role.USER)).thenThrow(new NoteNotFoundException(1L));
+
+        mockMvc.perform(get("/api/v1/notes/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\"").with(user(testUser())))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.error").value("Not found"));
+    }
+
+    @Test
+    void testGetNoteByIdReturns406ForUnsupportedFormatWithETag() throws Exception {
+        when(noteService.getNoteVersion(1L, "testuser", Role.USER)).thenReturn(3L);
+
+        mockMvc.perform(get("/api/v1/notes/1").accept(MediaType.TEXT_PLAIN)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3\"").with(user(testUser())))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void testGetNoteByIdChecksOwnershipBefore304() throws Exception {
+        when(noteService.getNoteVersion(eq(1L), any(), any()))
+                .thenThrow(new UnauthorizedAccessException("You do not have permission to access note with id: 1"));
+
+        mockMvc.perform(get("/api/v1/notes/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\"").with(user(testUser())))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     void testGetNoteByIdReturns400WhenIdNotNumeric() throws Exception {
         mockMvc.perform(get("/api/v1/notes/abc").with(user(testUser())))
@@ -261,11 +717,93 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$.error").value("Forbidden"));
     }
 
+    // --- DELETE /notes ---
+
+    @Test
+    void testDeleteNotesByIdsReportsEachOutcome() throws Exception {
+        when(noteService.deleteNotesByIds(List.of(1L, 2L, 3L), "testuser", Role.USER))
+                .thenReturn(NoteDeleteResult.ofIds(List.of(1L), List.of(2L), List.of(3L)));
+
+        mockMvc.perform(delete("/api/v1/notes").param("ids", "1,2,3").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount").value(1))
+                .andExpect(jsonPath("$.deleted[0]").value(1))
+                .andExpect(jsonPath("$.refused[0]").value(2))
+                .andExpect(jsonPath("$.notFound[0]").value(3));
+    }
+
+    @Test
+    void testDeleteNotesByFilterScopesToOwnNotes() throws Exception {
+        NoteFilter filter = ownNotes().tags(Set.of("old")).tagMode(TagMode.ALL).build();
+        when(noteService.deleteNotesByFilter(filter)).thenReturn(NoteDeleteResult.ofCount(5));
+
+        mockMvc.perform(delete("/api/v1/notes")
+                        .param("tags", "old")
+                        .param("tagMode", "all")
+                        .param("userId", "someone_else")
+                        .with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount").value(5))
+                .andExpect(jsonPath("$.deleted").doesNotExist());
+    }
+
+    @Test
+    void testAdminDeletesNotesOfOneUser() throws Exception {
+        NoteFilter filter = NoteFilter.builder().userId("testuser").build();
+        when(noteService.deleteNotesByFilter(filter)).thenReturn(NoteDeleteResult.ofCount(12));
+
+        mockMvc.perform(delete("/api/v1/notes").param("userId", "testuser").with(user(adminUser())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount").value(12));
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidBulkDeletes")
+    void testDeleteNotesReturns400ForInvalidSelection(Map<String, String> params) throws Exception {
+        var request = delete("/api/v1/notes").with(user(testUser()));
+        params.forEach(request::param);
+
+        mockMvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid parameter"));
+
+        verifyNoInteractions(noteService);
+    }
+
+    static Stream<Map<String, String>> invalidBulkDeletes() {
+        String tooMany = String.join(",", Collections.nCopies(NoteController.MAX_DELETE_IDS + 1, "1"));
+        return Stream.of(
+                Map.of(),
+                Map.of("userId", "testuser"),
+                Map.of("ids", "1", "tags", "old"),
+                Map.of("ids", tooMany)
+        );
+    }
+
+    // --- Actuator access ---
+
+    @Test
+    void testMetricsAreForbiddenToUsers() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").with(user(testUser())))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/metrics").with(user(testUser())))
+                .andExpect(status().isForbidden());
+    }
+
+    // The slice serves no actuator endpoints, so getting past security ends in 404
+    @Test
+    void testMetricsAreOpenToAdminsAndHealthToEveryone() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").with(user(adminUser())))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isNotFound());
+    }
+
     // --- Database errors ---
 
     @Test
     void testGetAllNotesReturns503WhenDbUnavailable() throws Exception {
-        when(noteService.getNotesByFilters(any(), any(), any())).thenThrow(new QueryTimeoutException("Connection refused"));
+        when(noteService.getNoteSummariesByFilters(any(), any(), anyInt())).thenThrow(new QueryTimeoutException("Connection refused"));
 
         mockMvc.perform(get("/api/v1/notes").with(user(testUser())))
                 .andExpect(status().isServiceUnavailable())
@@ -273,6 +811,16 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$.message").value("Unable to connect to the database. Please try again later."));
     }
 
+    @Test
+    void testGetNoteReturns503WhenNoConnectionAvailable() throws Exception {
+        when(noteService.getNoteById(eq(1L), any(), any()))
+                .thenThrow(new CannotCreateTransactionException("Could not open JPA EntityManager for transaction"));
+
+        mockMvc.perform(get("/api/v1/notes/1").with(user(testUser())))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error").value("Service unavailable"));
+    }
+
     @Test
     void testCreateNoteReturns503WhenDbUnavailable() throws Exception {
         CreateNoteRequest request = new CreateNoteRequest();
@@ -415,6 +963,71 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$.id").value(1));
     }
 
+    // --- POST /notes/batch ---
+
+    @Test
+    void testBatchCreatesValidNotesAndReportsInvalidOnes() throws Exception {
+        CreateNoteRequest first = new CreateNoteRequest();
+        first.setName("First");
+        first.setContent("Content");
+        CreateNoteRequest invalid = new CreateNoteRequest();
+        invalid.setContent("No name");
+        CreateNoteRequest second = new CreateNoteRequest();
+        second.setName("Second");
+        second.setContent("Content");
+
+        Note firstSaved = new Note();
+        firstSaved.setId(10L);
+        Note secondSaved = new Note();
+        secondSaved.setId(11L);
+        when(noteService.createNotes(argThat(items -> items.size() == 2), eq("testuser")))
+                .thenReturn(List.of(firstSaved, secondSaved));
+
+        mockMvc.perform(post("/api/v1/notes/batch")
+                        .with(user(testUser()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("notes", List.of(first, invalid, second)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].id").value(10))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].fields.name").value("Name is required"))
+                .andExpect(jsonPath("$[2].index").value(2))
+                .andExpect(jsonPath("$[2].id").value(11));
+    }
+
+    @Test
+    void testBatchWithOnlyInvalidNotesSkipsService() throws Exception {
+        mockMvc.perform(post("/api/v1/notes/batch")
+                        .with(user(testUser()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"notes\": [{\"name\": \"No content\"}, null]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].fields.content").value("Content is required"))
+                .andExpect(jsonPath("$[1].fields.note").value("Note is required"));
+
+        verifyNoInteractions(noteService);
+    }
+
+    @ParameterizedTest(name = "{0} notes returns 400")
+    @ValueSource(ints = {0, CreateNotesRequest.MAX_NOTES + 1})
+    void testBatchSizeOutOfRangeReturns400(int count) throws Exception {
+        CreateNoteRequest request = new CreateNoteRequest();
+        request.setName("Note");
+        request.setContent("Content");
+
+        mockMvc.perform(post("/api/v1/notes/batch")
+                        .with(user(testUser()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("notes", Collections.nCopies(count, request)))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.fields.notes").exists());
+
+        verifyNoInteractions(noteService);
+    }
+
     // --- PUT /notes/{id} ---
 
     @Test
@@ -429,7 +1042,7 @@ class NoteControllerTest {
         updatedNote.setContent("Updated content");
         updatedNote.setUserId("testuser");
 
-        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), eq("testuser"), eq(Role.USER)))
+        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), isNull(), eq("testuser"), eq(Role.USER)))
                 .thenReturn(updatedNote);
 
         mockMvc.perform(put("/api/v1/notes/1")
@@ -449,7 +1062,7 @@ class NoteControllerTest {
         request.setName("Updated Note");
         request.setContent("Updated content");
 
-        when(noteService.updateNote(eq(99L), any(UpdateNoteRequest.class), any(), any()))
+        when(noteService.updateNote(eq(99L), any(UpdateNoteRequest.class), isNull(), any(), any()))
                 .thenThrow(new NoteNotFoundException(99L));
 
         mockMvc.perform(put("/api/v1/notes/99")
@@ -481,7 +1094,7 @@ class NoteControllerTest {
         request.setName("Updated Note");
         request.setContent("Updated content");
 
-        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), any(), any()))
+        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), isNull(), any(), any()))
                 .thenThrow(new UnauthorizedAccessException("You do not have permission to access note with id: 1"));
 
         mockMvc.perform(put("/api/v1/notes/1")
@@ -544,7 +1157,7 @@ class NoteControllerTest {
         updatedNote.setContent("Updated content");
         updatedNote.setUserId("testuser");
 
-        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), any(), any())).thenReturn(updatedNote);
+        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), isNull(), any(), any())).thenReturn(updatedNote);
 
         mockMvc.perform(put("/api/v1/notes/1")
                         .with(user(testUser()))
@@ -554,13 +1167,30 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$.name").value("Updated Note"));
     }
 
+    @Test
+    void testUpdateNoteReturns409WhenChangedConcurrently() throws Exception {
+        UpdateNoteRequest request = new UpdateNoteRequest();
+        request.setName("Updated Note");
+        request.setContent("Updated content");
+
+        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), isNull(), any(), any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Note.class, 1L));
+
+        mockMvc.perform(put("/api/v1/notes/1")
+                        .with(user(testUser()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Conflict"));
+    }
+
     @Test
     void testUpdateNoteReturns503WhenDbUnavailable() throws Exception {
         UpdateNoteRequest request = new UpdateNoteRequest();
         request.setName("Updated Note");
         request.setContent("Updated content");
 
-        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), any(), any()))
+        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), isNull(), any(), any()))
                 .thenThrow(new QueryTimeoutException("Connection refused"));
 
         mockMvc.perform(put("/api/v1/notes/1")
@@ -571,4 +1201,324 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$.error").value("Service unavailable"))
                 .andExpect(jsonPath("$.message").value("Unable to connect to the database. Please try again later."));
     }
+
+    @Test
+    void testUpdateNoteWithIfMatchPassesVersionAndReturnsNewETag() throws Exception {
+        UpdateNoteRequest request = new UpdateNoteRequest();
+        request.setName("Updated Note");
+        request.setContent("Updated content");
+
+        Note updatedNote = new Note();
+        updatedNote.setId(1L);
+        updatedNote.setName("Updated Note");
+        updatedNote.setVersion(4L);
+
+        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), eq(Set.of(3L)), eq("testuser"), eq(Role.USER)))
+                .thenReturn(updatedNote);
+
+        mockMvc.perform(put("/api/v1/notes/1")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .with(user(testUser()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void testUpdateNoteReturns412WhenVersionChanged() throws Exception {
+        UpdateNoteRequest request = new UpdateNoteRequest();
+        request.setName("Updated Note");
+        request.setContent("Updated content");
+
+        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), eq(Set.of(3L)), any(), any()))
+                .thenThrow(new NoteVersionMismatchException(1L));
+
+        mockMvc.perform(put("/api/v1/notes/1")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .with(user(testUser()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.error").value("Precondition failed"))
+                .andExpect(jsonPath("$.message").value("Note with id 1 has changed since the version in If-Match"));
+    }
+
+    // The version decides, whatever format the ETag was handed out for
+    @ParameterizedTest
+    @ValueSource(strings = {"\"3-cbor\"", "\"3-smile\""})
+    void testUpdateNoteAcceptsETagOfBinaryFormat(String ifMatch) throws Exception {
+        UpdateNoteRequest request = new UpdateNoteRequest();
+        request.setName("Updated Note");
+        request.setContent("Updated content");
+
+        Note updatedNote = new Note();
+        updatedNote.setId(1L);
+        updatedNote.setVersion(4L);
+
+        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), eq(Set.of(3L)), eq("testuser"), eq(Role.USER)))
+                .thenReturn(updatedNote);
+
+        mockMvc.perform(put("/api/v1/notes/1")
+                        .header(HttpHeaders.IF_MATCH, ifMatch)
+                        .with(user(testUser()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    // Every strong ETag of ours in the list is a version the note may still have; the others are left out
+    @Test
+    void testUpdateNotePassesEveryVersionListedInIfMatch() throws Exception {
+        UpdateNoteRequest request = new UpdateNoteRequest();
+        request.setName("Updated Note");
+        request.setContent("Updated content");
+
+        Note updatedNote = new Note();
+        updatedNote.setId(1L);
+        updatedNote.setVersion(4L);
+
+        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class), eq(Set.of(2L, 3L)), eq("testuser"),
+                eq(Role.USER))).thenReturn(updatedNote);
+
+        mockMvc.perform(put("/api/v1/notes/1")
+                        .header(HttpHeaders.IF_MATCH, "\"2\", W/\"7\", \"3-cbor\", \"abc\"")
+                        .with(user(testUser()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"W/\"3\"", "\"abc\"", "\"3-xml\"", "W/\"3\", \"abc\""})
+    void testUpdateNoteReturns412ForETagThatCannotMatch(String ifMatch) throws Exception {
+        UpdateNoteRequest request = new UpdateNoteRequest();
+        request.setName("Updated Note");
+        request.setContent("Updated content");
+
+        mockMvc.perform(put("/api/v1/notes/1")
+                        .header(HttpHeaders.IF_MATCH, ifMatch)
+                        .with(user(testUser()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isPreconditionFailed());
+
+        verifyNoInteractions(noteService);
+    }
+
+    // --- PATCH /notes/{id} ---
+
+    @Test
+    void testPatchNotePassesOnlySentFields() throws Exception {
+        Note patchedNote = new Note();
+        patchedNote.setId(1L);
+        patchedNote.setName("Renamed");
+        patchedNote.setUserId("testuser");
+
+        when(noteService.patchNote(eq(1L), any(PatchNoteRequest.class), isNull(), eq("testuser"), eq(Role.USER)))
+                .thenReturn(patchedNote);
+
+        mockMvc.perform(patch("/api/v1/notes/1")
+                        .with(user(testUser()))
+                        .contentType(NoteController.MERGE_PATCH_JSON)
+                        .content("{\"name\": \"Renamed\", \"tags\": null}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Renamed"));
+
+        verify(noteService).patchNote(eq(1L), argThat(request -> request.getName().equals(Optional.of("Renamed"))
+                && request.getContent() == null
+                && request.getTags().isEmpty()), isNull(), eq("testuser"), eq(Role.USER));
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidPatches")
+    void testPatchNoteReturns400WhenFieldInvalid(String body, String field, String message) throws Exception {
+        mockMvc.perform(patch("/api/v1/notes/1")
+                        .with(user(testUser()))
+                        .contentType(NoteController.MERGE_PATCH_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation failed"))
+                .andExpect(jsonPath("$.fields." + field).value(message));
+
+        verifyNoInteractions(noteService);
+    }
+
+    static Stream<Arguments> invalidPatches() {
+        return Stream.of(
+                Arguments.of("{\"name\": null}", "name", "Name is required"),
+                Arguments.of("{\"name\": \"  \"}", "name", "Name is required"),
+                Arguments.of("{\"name\": \"" + "a".repeat(256) + "\"}", "name", "Name must be 255 characters or fewer"),
+                Arguments.of("{\"content\": null}", "content", "Content is required")
+        );
+    }
+
+    @Test
+    void testPatchNoteReturns403WhenNotOwner() throws Exception {
+        when(noteService.patchNote(eq(1L), any(PatchNoteRequest.class), isNull(), any(), any()))
+                .thenThrow(new UnauthorizedAccessException("You do not have permission to access note with id: 1"));
+
+        mockMvc.perform(patch("/api/v1/notes/1")
+                        .with(user(testUser()))
+                        .contentType(NoteController.MERGE_PATCH_JSON)
+                        .content("{\"content\": \"New content\"}"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void testPatchNoteWithWildcardIfMatchSkipsVersionCheck() throws Exception {
+        Note patchedNote = new Note();
+        patchedNote.setId(1L);
+        patchedNote.setVersion(2L);
+
+        when(noteService.patchNote(eq(1L), any(PatchNoteRequest.class), isNull(), any(), any())).thenReturn(patchedNote);
+
+        mockMvc.perform(patch("/api/v1/notes/1")
+                        .header(HttpHeaders.IF_MATCH, "*")
+                        .with(user(testUser()))
+                        .contentType(NoteController.MERGE_PATCH_JSON)
+                        .content("{\"content\": \"New content\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+    }
+
+    // --- CBOR and Smile ---
+
+    static Stream<Arguments> binaryFormats() {
+        return Stream.of(
+                Arguments.of(MediaType.APPLICATION_CBOR_VALUE, new CBORMapper(), "cbor"),
+                Arguments.of(NoteController.SMILE_VALUE, new SmileMapper(), "smile"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("binaryFormats")
+    void testGetNoteByIdNegotiatesBinaryFormat(String format, tools.jackson.databind.ObjectMapper mapper,
+                                               String suffix) throws Exception {
+        Note note = new Note();
+        note.setId(1L);
+        note.setName("Test Note");
+        note.setUserId("testuser");
+        note.setVersion(3L);
+
+        when(noteService.getNoteById(1L, "testuser", Role.USER)).thenReturn(note);
+
+        byte[] body = mockMvc.perform(get("/api/v1/notes/1").accept(format).with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(format))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-" + suffix + "\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Map<?, ?> decoded = mapper.readValue(body, Map.class);
+        assertEquals(1, decoded.get("id"));
+        assertEquals("Test Note", decoded.get("name"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("binaryFormats")
+    void testErrorBodyNegotiatesBinaryFormat(String format, tools.jackson.databind.ObjectMapper mapper,
+                                             String suffix) throws Exception {
+        when(noteService.getNoteById(eq(99L), any(), any())).thenThrow(new NoteNotFoundException(99L));
+
+        byte[] body = mockMvc.perform(get("/api/v1/notes/99").accept(format).with(user(testUser())))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(format))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Map<?, ?> decoded = mapper.readValue(body, Map.class);
+        assertEquals("Not found", decoded.get("error"));
+        assertEquals("Note not found with id: 99", decoded.get("message"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("binaryFormats")
+    void testCreateNoteAcceptsBinaryBody(String format, tools.jackson.databind.ObjectMapper mapper,
+                                         String suffix) throws Exception {
+        Note savedNote = new Note();
+        savedNote.setId(1L);
+        savedNote.setName("Test Note");
+
+        when(noteService.createNote(any(CreateNoteRequest.class), eq("testuser"))).thenReturn(savedNote);
+
+        mockMvc.perform(post("/api/v1/notes")
+                        .with(user(testUser()))
+                        .contentType(format)
+                        .content(mapper.writeValueAsBytes(Map.of("name", "Test Note", "content", "Some content",
+                                "tags", List.of("work")))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.name").value("Test Note"));
+
+        verify(noteService).createNote(argThat(request -> request.getName().equals("Test Note")
+                && request.getContent().equals("Some content")
+                && request.getTags().equals(Set.of("work"))), eq("testuser"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("binaryFormats")
+    void testPatchNoteAcceptsBinaryBody(String format, tools.jackson.databind.ObjectMapper mapper,
+                                        String suffix) throws Exception {
+        Note patchedNote = new Note();
+        patchedNote.setId(1L);
+
+        when(noteService.patchNote(eq(1L), any(PatchNoteRequest.class), isNull(), eq("testuser"), eq(Role.USER)))
+                .thenReturn(patchedNote);
+
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("name", "Renamed");
+        patch.put("tags", null);
+        mockMvc.perform(patch("/api/v1/notes/1")
+                        .with(user(testUser()))
+                        .contentType(format)
+                        .content(mapper.writeValueAsBytes(patch)))
+                .andExpect(status().isOk());
+
+        verify(noteService).patchNote(eq(1L), argThat(request -> request.getName().equals(Optional.of("Renamed"))
+                && request.getContent() == null
+                && request.getTags().isEmpty()), isNull(), eq("testuser"), eq(Role.USER));
+    }
+
+    // A copy in one format must not revalidate a request for another, since the bytes differ
+    @ParameterizedTest
+    @MethodSource("binaryFormats")
+    void testETagOfBinaryFormatOnlyRevalidatesThatFormat(String format, tools.jackson.databind.ObjectMapper mapper,
+                                                         String suffix) throws Exception {
+        Note note = new Note();
+        note.setId(1L);
+        note.setVersion(3L);
+
+        when(noteService.getNoteVersion(1L, "testuser", Role.USER)).thenReturn(3L);
+        when(noteService.getNoteById(1L, "testuser", Role.USER)).thenReturn(note);
+
+        mockMvc.perform(get("/api/v1/notes/1").accept(format)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3-" + suffix + "\"").with(user(testUser())))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/v1/notes/1").accept(format)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3\"").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-" + suffix + "\""));
+        mockMvc.perform(get("/api/v1/notes/1").accept(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3-" + suffix + "\"").with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    // The ETag follows the format negotiation picks, so wildcards and preferences get the tag of the body sent
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "*/*|\"42\"|application/json",
+            "application/*|\"42\"|application/json",
+            "application/cbor, application/json;q=0.5|\"42-cbor\"|application/cbor",
+            "application/json;q=0.5, application/x-jackson-smile|\"42-smile\"|application/x-jackson-smile",
+            "application/cbor;q=0, */*|\"42\"|application/json"})
+    void testListingETagFollowsNegotiatedFormat(String accept, String etag, String contentType) throws Exception {
+        when(noteService.getChangeStamp("testuser")).thenReturn(42L);
+        when(noteService.getNoteSummariesByFilters(any(), any(), anyInt())).thenReturn(page(summary(1L, "Note 1")));
+
+        mockMvc.perform(get("/api/v1/notes").header(HttpHeaders.ACCEPT, accept).with(user(testUser())))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(contentType))
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
 }
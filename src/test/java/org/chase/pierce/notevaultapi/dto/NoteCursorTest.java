@@ -0,0 +1,40 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import org.chase.pierce.notevaultapi.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoteCursorTest {
+
+    @Test
+    void testRoundTripsThroughToken() {
+        NoteCursor cursor = new NoteCursor(LocalDateTime.of(2025, 1, 15, 10, 30, 0, 123_456_000), 42L);
+
+        assertEquals(cursor, NoteCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void testTokenIsUrlSafe() {
+        NoteCursor cursor = new NoteCursor(LocalDateTime.of(2025, 1, 15, 10, 30), Long.MAX_VALUE);
+
+        assertTrue(cursor.encode().matches("[A-Za-z0-9_-]+"));
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    void testMissingTokenStartsAtFirstPage(String token) {
+        assertEquals(NoteCursor.START, NoteCursor.decode(token));
+    }
+
+    @ParameterizedTest(name = "rejects \"{0}\"")
+    @ValueSource(strings = {"not-a-cursor", "!!!", "MTIz", "YWJjOjEyMw"})
+    void testRejectsMalformedToken(String token) {
+        assertThrows(InvalidCursorException.class, () -> NoteCursor.decode(token));
+    }
+}
@@ -0,0 +1,49 @@
+package org.chase.pierce.notevaultapi.dto;
+
+import org.chase.pierce.notevaultapi.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCursorTest {
+
+    @ParameterizedTest(name = "rank {0} round-trips exactly")
+    @ValueSource(floats = {0.6079271f, 0.1f, 1e-20f, Float.MIN_VALUE, Float.POSITIVE_INFINITY})
+    void testRoundTripsThroughToken(float rank) {
+        SearchCursor cursor = new SearchCursor(rank, 42L);
+
+        assertEquals(cursor, SearchCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void testTokenIsUrlSafe() {
+        SearchCursor cursor = new SearchCursor(0.33098254f, Long.MAX_VALUE);
+
+        assertTrue(cursor.encode().matches("[A-Za-z0-9_-]+"));
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    void testMissingTokenStartsAtFirstResult(String token) {
+        assertEquals(SearchCursor.START, SearchCursor.decode(token));
+    }
+
+    @ParameterizedTest(name = "rejects \"{0}\"")
+    @ValueSource(strings = {"not-a-cursor", "!!!", "MTIz", "YWJjOjEyMw"})
+    void testRejectsMalformedToken(String token) {
+        assertThrows(InvalidCursorException.class, () -> SearchCursor.decode(token));
+    }
+
+    @Test
+    void testRejectsNaNRank() {
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString("NaN:1".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(InvalidCursorException.class, () -> SearchCursor.decode(token));
+    }
+}
@@ -0,0 +1,609 @@
+package org.chase.pierce.notevaultapi.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.chase.pierce.notevaultapi.dto.CreateNoteRequest;
+import org.chase.pierce.notevaultapi.dto.NoteCursor;
+import org.chase.pierce.notevaultapi.dto.NoteDeleteResult;
+import org.chase.pierce.notevaultapi.dto.NoteFilter;
+import org.chase.pierce.notevaultapi.dto.NotePage;
+import org.chase.pierce.notevaultapi.dto.NoteSort;
+import org.chase.pierce.notevaultapi.dto.NoteSummary;
+import org.chase.pierce.notevaultapi.dto.PatchNoteRequest;
+import org.chase.pierce.notevaultapi.dto.TagMode;
+import org.chase.pierce.notevaultapi.dto.UpdateNoteRequest;
+import org.chase.pierce.notevaultapi.entity.Note;
+import org.chase.pierce.notevaultapi.entity.Role;
+import org.chase.pierce.notevaultapi.exception.NoteNotFoundException;
+import org.chase.pierce.notevaultapi.exception.NoteVersionMismatchException;
+import org.chase.pierce.notevaultapi.exception.UnauthorizedAccessException;
+import org.chase.pierce.notevaultapi.service.NoteService;
+import org.chase.pierce.notevaultapi.service.TagCache;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every repository query against PostgreSQL migrated by Flyway and checks its plan. The data set is large
+ * enough that the planner only picks an index when one actually fits the query.
+ */
+// The scheduled compaction of the change log is kept out of the tests, which run it themselves
+@DataJpaTest(properties = "notevault.change-stamp.compact-interval=1d")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RepositoryQueryPlanTest.EmbeddedDatabase.class, NoteService.class, TagCache.class})
+class RepositoryQueryPlanTest {
+
+    private static final NoteCursor START = NoteCursor.START;
+    private static final LocalDateTime SINCE = LocalDateTime.now().minusDays(10);
+    private static final NoteCursor AFTER = new NoteCursor(SINCE, 25_000L);
+    private static final Limit PAGE = Limit.of(51);
+    // An owner or notebook holds few enough notes here that the planner may read either its modified_at or its
+    // created_at index and sort, so listings filtered by one only pin down the index family
+    private static final String USER_INDEX = "note_user_id_";
+    private static final String NOTEBOOK_INDEX = "note_notebook_id_";
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private PlanCapture planCapture;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    // 50k notes for 500 owners across 1000 notebooks, three of 2000 tags each, plus 2000 accounts. The change log is
+    // folded once and then holds the 5000 single-note saves made since, as it would between two compactions
+    @BeforeAll
+    static void seed(@Autowired DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    INSERT INTO ud.notebook (name, user_id)
+                    SELECT 'notebook ' || n, 'user_' || (n % 500) FROM generate_series(1, 1000) n;
+                    INSERT INTO ud.note (id, name, content, user_id, notebook_id, created_at, modified_at)
+                    SELECT n, 'note ' || n, 'content ' || n, 'user_' || (n % 500), 1 + n % 1000,
+                           now() - n * interval '1 minute', now() - n * interval '1 minute'
+                    FROM generate_series(1, 50000) n;
+                    SELECT setval('ud.note_id_seq', 50000);
+                    INSERT INTO ud.tags (name) SELECT 'tag_' || n FROM generate_series(1, 2000) n;
+                    INSERT INTO ud.note_tags (note_id, tag_id)
+                    SELECT DISTINCT n, 1 + (n * k) % 2000 FROM generate_series(1, 50000) n, generate_series(1, 3) k;
+                    INSERT INTO auth.users (username, password) SELECT 'user_' || n, '{noop}x' FROM generate_series(1, 2000) n;
+                    SELECT ud.compact_note_changes();
+                    DO $$
+                    BEGIN
+                        FOR n IN 45001..50000 LOOP
+                            UPDATE ud.note SET name = name WHERE id = n;
+                        END LOOP;
+                    END
+                    $$;
+                    """);
+            // Also moves the bulk-loaded rows out of the GIN pending list, as autovacuum would
+            statement.execute("VACUUM ANALYZE");
+        }
+    }
+
+    @ParameterizedTest(name = "{0} uses {1}")
+    @MethodSource("repositoryQueries")
+    void testQueryUsesIndex(String query, String index, Consumer<RepositoryQueryPlanTest> call) {
+        planCapture.clear();
+        call.accept(this);
+
+        List<String> plans = planCapture.plans();
+        assertFalse(plans.isEmpty(), "no SELECT was issued");
+        for (String plan : plans) {
+            assertTrue(plan.contains(index), () -> "expected " + index + " in\n" + plan);
+            assertFalse(plan.contains("Seq Scan on note ") || plan.contains("Seq Scan on note_tags "),
+                    () -> "sequential scan in\n" + plan);
+        }
+    }
+
+    // streamAll is left out: exporting every note reads the whole table by design. The stamp of all notes reads the
+    // whole change log too, which compaction keeps to the writes of one interval, so only its rollup read is checked
+    static Stream<Arguments> repositoryQueries() {
+        return Stream.of(
+                query("findById", "note_pkey", t -> t.noteRepository.findById(42L)),
+                query("findWithNotebookById", "note_pkey", t -> t.noteRepository.findWithNotebookById(42L)),
+                query("findVersionById", "note_pkey", t -> t.noteRepository.findVersionById(42L)),
+                query("findChangeStampByUserId", "note_change_pkey",
+                        t -> t.noteRepository.findChangeStampByUserId("user_7")),
+                query("findChangeStampByUserId", "note_change_log_user_id_idx",
+                        t -> t.noteRepository.findChangeStampByUserId("user_7")),
+                query("findChangeStampOfAllNotes", "note_change_pkey",
+                        t -> t.noteRepository.findChangeStampOfAllNotes()),
+                query("findAllById", "note_pkey", t -> t.noteRepository.findAllById(List.of(1L, 2L, 3L))),
+                query("findSummaryRowsByIdIn", "note_pkey",
+                        t -> t.noteRepository.findSummaryRowsByIdIn(List.of(1L, 2L, 3L))),
+                query("streamByUserId", USER_INDEX, t -> {
+                    try (Stream<?> notes = t.noteRepository.streamByUserId("user_7")) {
+                        notes.findFirst();
+                    }
+                }),
+                page("no filter", "note_modified_at_id_idx", NoteFilter.NONE, START),
+                page("user", USER_INDEX, filter().userId("user_7"), AFTER),
+                page("notebook", NOTEBOOK_INDEX, filter().notebookId(7L), START),
+                page("user and notebook", NOTEBOOK_INDEX,
+                        filter().userId("user_7").notebookId(7L), AFTER),
+                page("tags", "note_tags_tag_id_note_id_idx", filter().tags(Set.of("tag_7", "tag_8")), START),
+                page("tags and user", "note_tags_tag_id_note_id_idx",
+                        filter().tags(Set.of("tag_7")).userId("user_7"), AFTER),
+                page("tags and notebook", NOTEBOOK_INDEX,
+                        filter().tags(Set.of("tag_7")).notebookId(7L), START),
+                page("tags, user and notebook", NOTEBOOK_INDEX,
+                        filter().tags(Set.of("tag_7")).userId("user_7").notebookId(7L), START),
+                page("all tags", "note_tags_tag_id_note_id_idx",
+                        filter().tags(Set.of("tag_8", "tag_15")).tagMode(TagMode.ALL), START),
+                page("all of one tag", "note_tags_tag_id_note_id_idx",
+                        filter().tags(Set.of("tag_8")).tagMode(TagMode.ALL), AFTER),
+                page("all tags and user", "note_tags_tag_id_note_id_idx",
+                        filter().tags(Set.of("tag_8", "tag_15", "tag_22")).tagMode(TagMode.ALL).userId("user_7"), AFTER),
+                page("user modified since", USER_INDEX,
+                        filter().userId("user_7").modifiedSince(SINCE.minusDays(5)), AFTER),
+                page("user created range", "note_user_id_created_at_idx",
+                        filter().userId("user_7").createdFrom(SINCE.minusDays(7)).createdBefore(SINCE), START),
+                page("created newest first", "note_created_at_id_idx", filter().sort(NoteSort.CREATED_DESC), AFTER),
+                page("user created oldest first", "note_user_id_created_at_idx",
+                        filter().userId("user_7").sort(NoteSort.CREATED_ASC), AFTER),
+                page("notebook modified oldest first", NOTEBOOK_INDEX,
+                        filter().notebookId(7L).sort(NoteSort.MODIFIED_ASC), START),
+                page("notebook created range", "note_notebook_id_created_at_idx",
+                        filter().notebookId(7L).createdFrom(SINCE.minusDays(7)).sort(NoteSort.CREATED_DESC), AFTER),
+                query("search", "note_search_vector_idx",
+                        t -> t.noteRepository.search("12345", Float.POSITIVE_INFINITY, Long.MAX_VALUE, 51)),
+                query("searchByUserId", "note_search_vector_idx",
+                        t -> t.noteRepository.searchByUserId("12345", "user_345", Float.POSITIVE_INFINITY, Long.MAX_VALUE, 51)),
+                query("lookupByName", "note_name_trgm_idx", t -> t.lookup(() -> t.noteRepository.lookupByName("12345", 10))),
+                query("lookupByNameAndUserId", "note_name_trgm_idx",
+                        t -> t.lookup(() -> t.noteRepository.lookupByNameAndUserId("12345", "user_345", 10))),
+                query("findByNameIn", "tags_name_key", t -> t.tagRepository.findByNameIn(List.of("tag_1", "tag_2"))),
+                query("findByUsername", "users_username_key", t -> t.userRepository.findByUsername("default_user"))
+        );
+    }
+
+    // The name lookups read the similarity threshold set earlier in the transaction; only the lookup is explained
+    private void lookup(Runnable call) {
+        noteRepository.setWordSimilarityThreshold(NoteService.LOOKUP_SIMILARITY_THRESHOLD);
+        planCapture.clear();
+        call.run();
+    }
+
+    private static Arguments query(String name, String index, Consumer<RepositoryQueryPlanTest> call) {
+        return Arguments.of(name, index, call);
+    }
+
+    private static NoteFilter.NoteFilterBuilder filter() {
+        return NoteFilter.builder();
+    }
+
+    // Tag names stand in for their ids: the seed inserts tag_n with id n
+    private static Arguments page(String name, String index, NoteFilter.NoteFilterBuilder filter, NoteCursor after) {
+        return page(name, index, filter.build(), after);
+    }
+
+    private static Arguments page(String name, String index, NoteFilter filter, NoteCursor after) {
+        Set<Long> tagIds = filter.tags().stream().map(tag -> Long.valueOf(tag.substring(4))).collect(Collectors.toSet());
+        return query("findPageKeys " + name, index, t -> t.noteRepository.findPageKeys(filter, tagIds, after, PAGE));
+    }
+
+    @ParameterizedTest(name = "{0} takes {2} statements")
+    @MethodSource("listings")
+    void testListingStatementCount(String name, NoteFilter filter, int statements) {
+        planCapture.clear();
+        NotePage<NoteSummary> summaries = noteService.getNoteSummariesByFilters(filter, START, 50);
+        assertFalse(summaries.items().isEmpty());
+        assertEquals(statements, planCapture.plans().size(), () -> String.join("\n", planCapture.plans()));
+
+        planCapture.clear();
+        NotePage<Note> notes = noteService.getNotesByFilters(filter, START, 50);
+        assertEquals(summaries.items().size(), notes.items().size());
+        assertEquals(statements, planCapture.plans().size(), () -> String.join("\n", planCapture.plans()));
+    }
+
+    // One statement for the page keys and one for the notes, whatever the filters; tag names the cache has not
+    // seen yet (it is only filled on commit, which these tests never do) add one lookup
+    static Stream<Arguments> listings() {
+        return Stream.of(
+                Arguments.of("no filter", NoteFilter.NONE, 2),
+                Arguments.of("user", filter().userId("user_7").build(), 2),
+                Arguments.of("every filter", filter().userId("user_7").notebookId(8L).modifiedSince(SINCE.minusYears(1))
+                        .createdFrom(SINCE.minusYears(1)).createdBefore(SINCE.plusYears(1))
+                        .sort(NoteSort.CREATED_ASC).build(), 2),
+                Arguments.of("tags and user", filter().tags(Set.of("tag_8", "tag_9")).userId("user_7").build(), 3),
+                // Note 7 carries tags 8, 15 and 22
+                Arguments.of("all tags", filter().tags(Set.of("tag_8", "tag_15", "tag_22")).tagMode(TagMode.ALL).build(), 3)
+        );
+    }
+
+    // Ids come from the sequence 50 at a time and the rows go out in JDBC batches, so 120 notes with two tags each
+    // take three INSERT round trips for the notes and five for their tags rather than one per row
+    @Test
+    void testCreateNotesBatchesInserts() {
+        List<CreateNoteRequest> requests = IntStream.range(0, 120)
+                .mapToObj(i -> createRequest("batch " + i, Set.of("batch_all", i % 2 == 0 ? "batch_even" : "batch_odd")))
+                .toList();
+
+        planCapture.clear();
+        List<Note> notes = noteService.createNotes(requests, "user_7");
+        entityManager.flush();
+
+        assertEquals(120, notes.stream().map(Note::getId).distinct().count());
+        List<String> writes = planCapture.writes();
+        assertEquals(3, writes.stream().filter(sql -> sql.startsWith("insert into ud.note ")).count(), writes::toString);
+        assertEquals(5, writes.stream().filter(sql -> sql.startsWith("insert into ud.note_tags ")).count(),
+                writes::toString);
+    }
+
+    // The ownership check, the delete and the per-ID outcome are one statement, and note_tags rows go with their
+    // notes through the foreign key's ON DELETE CASCADE rather than a delete of their own
+    @Test
+    void testDeleteNotesByIdsTakesOneStatement() {
+        planCapture.clear();
+        NoteDeleteResult result = noteService.deleteNotesByIds(List.of(7L, 8L, 99_999_999L), "user_7", Role.USER);
+
+        assertEquals(List.of(7L), result.deleted());
+        assertEquals(List.of(8L), result.refused());
+        assertEquals(List.of(99_999_999L), result.notFound());
+        assertEquals(1, planCapture.writes().size(), () -> planCapture.writes().toString());
+        assertTrue(planCapture.plans().isEmpty(), () -> String.join("\n", planCapture.plans()));
+        assertEquals(0L, noteTagCount(7L));
+        assertEquals(3L, noteTagCount(8L));
+    }
+
+    @Test
+    void testDeleteNotesByFilterTakesOneStatement() {
+        NoteFilter filter = filter().tags(Set.of("tag_8")).userId("user_7").build();
+
+        planCapture.clear();
+        NoteDeleteResult result = noteService.deleteNotesByFilter(filter);
+
+        assertTrue(result.deletedCount() > 0);
+        List<String> writes = planCapture.writes();
+        assertEquals(1, writes.size(), writes::toString);
+        assertTrue(writes.getFirst().startsWith("delete from ud.note "), writes::toString);
+        assertEquals(0L, noteTagCount(7L));
+    }
+
+    // Deleting one note is the same single statement, and what it returns still tells a missing note from someone
+    // else's
+    @Test
+    void testDeleteNoteByIdTakesOneStatement() {
+        planCapture.clear();
+        noteService.deleteNoteById(507L, "user_7", Role.USER);
+        assertThrows(UnauthorizedAccessException.class, () -> noteService.deleteNoteById(8L, "user_7", Role.USER));
+        assertThrows(NoteNotFoundException.class, () -> noteService.deleteNoteById(99_999_999L, "user_7", Role.USER));
+
+        assertEquals(3, planCapture.writes().size(), () -> planCapture.writes().toString());
+        assertTrue(planCapture.plans().isEmpty(), () -> String.join("\n", planCapture.plans()));
+        assertFalse(noteRepository.existsById(507L));
+        assertTrue(noteRepository.existsById(8L));
+    }
+
+    // One SELECT reads the note and its notebook without the tags, which are cleared by note_id and inserted anew;
+    // the tag names not cached yet add one lookup
+    @Test
+    void testUpdateNoteStatementCount() {
+        UpdateNoteRequest request = new UpdateNoteRequest();
+        request.setName("renamed");
+        request.setContent("new content");
+        request.setTags(Set.of("tag_1", "tag_2"));
+
+        planCapture.clear();
+        Note note = noteService.updateNote(7L, request, null, "user_7", Role.USER);
+        entityManager.flush();
+
+        assertEquals(8L, note.getNotebook().getId());
+        assertEquals(2, planCapture.plans().size(), () -> String.join("\n", planCapture.plans()));
+        List<String> writes = planCapture.writes();
+        assertEquals(List.of("update ud.note ", "delete from ud.note_tags ", "insert into ud.note_tags "),
+                writes.stream().map(sql -> sql.substring(0, sql.indexOf(' ', sql.indexOf("ud.")) + 1)).toList(),
+                writes::toString);
+        assertEquals(2L, noteTagCount(7L));
+
+        assertThrows(UnauthorizedAccessException.class,
+                () -> noteService.updateNote(8L, request, null, "user_7", Role.USER));
+        assertThrows(NoteNotFoundException.class,
+                () -> noteService.updateNote(99_999_999L, request, null, "user_7", Role.USER));
+    }
+
+    // A patch writes only what it changes: a rename is one UPDATE and leaves note_tags alone, and swapping one tag
+    // deletes and inserts one row each, plus the UPDATE that moves the note's version
+    @Test
+    void testPatchNoteWritesOnlyChanges() {
+        PatchNoteRequest rename = new PatchNoteRequest();
+        rename.setName(Optional.of("renamed"));
+        rename.setContent(Optional.of("content 7"));
+
+        planCapture.clear();
+        noteService.patchNote(7L, rename, null, "user_7", Role.USER);
+        entityManager.flush();
+
+        assertEquals(1, planCapture.plans().size(), () -> String.join("\n", planCapture.plans()));
+        List<String> writes = planCapture.writes();
+        assertEquals(1, writes.size(), writes::toString);
+        assertTrue(writes.getFirst().startsWith("update ud.note "), writes::toString);
+
+        // Note 7 carries tags 8, 15 and 22
+        PatchNoteRequest retag = new PatchNoteRequest();
+        retag.setTags(Optional.of(Set.of("tag_8", "tag_15", "tag_1")));
+
+        planCapture.clear();
+        noteService.patchNote(7L, retag, null, "user_7", Role.USER);
+        entityManager.flush();
+
+        writes = planCapture.writes();
+        assertEquals(3, writes.size(), writes::toString);
+        assertTrue(writes.get(0).startsWith("update ud.note "), writes::toString);
+        assertTrue(writes.get(1).startsWith("delete from ud.note_tags "), writes::toString);
+        assertTrue(writes.get(2).startsWith("insert into ud.note_tags "), writes::toString);
+        assertEquals(3L, noteTagCount(7L));
+    }
+
+    // A stamp counts the writes to the notes in scope: each insert, update and delete adds exactly one, a change to
+    // the tags alone still moves the note's version, and an update in plain SQL moves it too
+    @Test
+    void testWritesMoveVersionAndChangeStamps() {
+        long user7 = noteService.getChangeStamp("user_7");
+        long user8 = noteService.getChangeStamp("user_8");
+        long all = noteService.getChangeStamp(null);
+        long version = noteService.getNoteVersion(7L, "user_7", Role.USER);
+
+        PatchNoteRequest retag = new PatchNoteRequest();
+        retag.setTags(Optional.of(Set.of("tag_8")));
+        noteService.patchNote(7L, retag, null, "user_7", Role.USER);
+        entityManager.flush();
+
+        assertEquals(version + 1, noteService.getNoteVersion(7L, "user_7", Role.USER));
+        assertEquals(user7 + 1, noteService.getChangeStamp("user_7"));
+        assertEquals(user8, noteService.getChangeStamp("user_8"));
+        assertEquals(all + 1, noteService.getChangeStamp(null));
+
+        noteService.deleteNoteById(8L, "admin", Role.ADMIN);
+        assertEquals(user8 + 1, noteService.getChangeStamp("user_8"));
+        assertEquals(all + 2, noteService.getChangeStamp(null));
+
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE ud.note SET name = 'renamed' WHERE id = 7")
+                .executeUpdate();
+        entityManager.clear();
+        assertEquals(version + 2, noteService.getNoteVersion(7L, "user_7", Role.USER));
+        assertEquals(user7 + 2, noteService.getChangeStamp("user_7"));
+
+        assertEquals(0L, noteService.getChangeStamp("stamp_user"));
+        noteService.createNotes(List.of(createRequest("new", Set.of())), "stamp_user");
+        entityManager.flush();
+        assertEquals(1L, noteService.getChangeStamp("stamp_user"));
+    }
+
+    // Giving a note to another owner is a removal for the old one: their stamp still grows rather than dropping by
+    // the note's writes, which would let it come back to a value a client already holds
+    @Test
+    void testChangingOwnerMovesBothStampsForward() {
+        long user7 = noteService.getChangeStamp("user_7");
+        long user8 = noteService.getChangeStamp("user_8");
+
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE ud.note SET user_id = 'user_8' WHERE id = 7")
+                .executeUpdate();
+
+        assertEquals(user7 + 1, noteService.getChangeStamp("user_7"));
+        assertTrue(noteService.getChangeStamp("user_8") > user8);
+    }
+
+    // Compaction folds the log into the rollup in one statement, so no stamp moves and no client re-downloads a
+    // listing because of it
+    @Test
+    void testCompactingTheChangeLogKeepsStamps() {
+        noteService.deleteNoteById(507L, "user_7", Role.USER);
+        long user7 = noteService.getChangeStamp("user_7");
+        long user8 = noteService.getChangeStamp("user_8");
+        long all = noteService.getChangeStamp(null);
+
+        assertTrue(noteRepository.compactChangeLog() > 0);
+
+        assertEquals(user7, noteService.getChangeStamp("user_7"));
+        assertEquals(user8, noteService.getChangeStamp("user_8"));
+        assertEquals(all, noteService.getChangeStamp(null));
+        assertEquals(0L, ((Number) entityManager.getEntityManager()
+                .createNativeQuery("SELECT count(*) FROM ud.note_change_log")
+                .getSingleResult()).longValue());
+        assertEquals(0L, noteRepository.compactChangeLog());
+    }
+
+    // The version check is the WHERE clause of the note's UPDATE: a change that lands after the note was read, here
+    // made behind Hibernate's back, makes the UPDATE match no row rather than being overwritten
+    @Test
+    void testUpdateWithExpectedVersionIsConditional() {
+        UpdateNoteRequest request = new UpdateNoteRequest();
+        request.setName("renamed");
+        request.setContent("new content");
+
+        long version = noteService.getNoteVersion(7L, "user_7", Role.USER);
+        Note note = noteService.updateNote(7L, request, Set.of(version), "user_7", Role.USER);
+        assertEquals(version + 1, note.getVersion());
+        assertThrows(NoteVersionMismatchException.class,
+                () -> noteService.updateNote(7L, request, Set.of(version), "user_7", Role.USER));
+
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE ud.note SET version = version + 1 WHERE id = 7")
+                .executeUpdate();
+        request.setName("lost update");
+        assertThrows(NoteVersionMismatchException.class,
+                () -> noteService.updateNote(7L, request, Set.of(version + 1), "user_7", Role.USER));
+    }
+
+    private long noteTagCount(long noteId) {
+        return ((Number) entityManager.getEntityManager()
+                .createNativeQuery("SELECT count(*) FROM ud.note_tags WHERE note_id = :noteId")
+                .setParameter("noteId", noteId)
+                .getSingleResult()).longValue();
+    }
+
+    private static CreateNoteRequest createRequest(String name, Set<String> tags) {
+        CreateNoteRequest request = new CreateNoteRequest();
+        request.setName(name);
+        request.setContent("content");
+        request.setTags(tags);
+        return request;
+    }
+
+    @TestConfiguration
+    static class EmbeddedDatabase {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        @Bean
+        PlanCapture planCapture() {
+            return new PlanCapture();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres embeddedPostgres, PlanCapture planCapture) {
+            return planCapture.wrap(embeddedPostgres.getPostgresDatabase());
+        }
+    }
+
+    /**
+     * Wraps a DataSource so that every SELECT is first run as EXPLAIN with the same bound parameters.
+     */
+    static class PlanCapture {
+
+        private final List<String> plans = new CopyOnWriteArrayList<>();
+        private final List<String> writes = new CopyOnWriteArrayList<>();
+
+        void clear() {
+            plans.clear();
+            writes.clear();
+        }
+
+        List<String> plans() {
+            return List.copyOf(plans);
+        }
+
+        /**
+         * The SQL of every round trip that is not a SELECT, including a WITH running a DELETE; a JDBC batch counts
+         * once.
+         */
+        List<String> writes() {
+            return List.copyOf(writes);
+        }
+
+        DataSource wrap(DataSource dataSource) {
+            return proxy(DataSource.class, (method, args) -> {
+                Object result = method.invoke(dataSource, args);
+                return result instanceof Connection connection ? wrap(connection) : result;
+            });
+        }
+
+        private Connection wrap(Connection connection) {
+            return proxy(Connection.class, (method, args) -> {
+                Object result = method.invoke(connection, args);
+                if (method.getName().equals("prepareStatement") && args[0] instanceof String sql) {
+                    if (sql.stripLeading().regionMatches(true, 0, "select", 0, 6)) {
+                        return explaining(connection, (PreparedStatement) result, sql);
+                    }
+                    return counting((PreparedStatement) result, sql);
+                }
+                return result;
+            });
+        }
+
+        private PreparedStatement explaining(Connection connection, PreparedStatement statement, String sql) {
+            List<Object[]> bindings = new ArrayList<>();
+            List<Method> setters = new ArrayList<>();
+            return proxy(PreparedStatement.class, (method, args) -> {
+                if (method.getName().startsWith("set") && args != null && args.length >= 2
+                        && args[0] instanceof Integer) {
+                    setters.add(method);
+                    bindings.add(args);
+                } else if (method.getName().equals("executeQuery") && (args == null || args.length == 0)) {
+                    plans.add(explain(connection, sql, setters, bindings));
+                }
+                return method.invoke(statement, args);
+            });
+        }
+
+        private PreparedStatement counting(PreparedStatement statement, String sql) {
+            return proxy(PreparedStatement.class, (method, args) -> {
+                if (Set.of("executeQuery", "executeUpdate", "executeBatch", "execute").contains(method.getName())
+                        && (args == null || args.length == 0)) {
+                    writes.add(sql);
+                }
+                return method.invoke(statement, args);
+            });
+        }
+
+        private String explain(Connection connection, String sql, List<Method> setters, List<Object[]> bindings)
+                throws ReflectiveOperationException, SQLException {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < setters.size(); i++) {
+                    setters.get(i).invoke(explain, bindings.get(i));
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) {
+                        plan.append(rows.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            }
+        }
+
+        @FunctionalInterface
+        private interface Handler {
+            Object handle(Method method, Object[] args) throws Exception;
+        }
+
+        private static <T> T proxy(Class<T> type, Handler handler) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+                try {
+                    return handler.handle(method, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            }));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.chase.pierce.notevaultapi.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingPasswordEncoderTest {
+
+    @Mock
+    private PasswordEncoder delegate;
+
+    private CachingPasswordEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        encoder = new CachingPasswordEncoder(delegate, 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testRepeatedMatchSkipsDelegate() {
+        when(delegate.matches("secret", "hash")).thenReturn(true);
+
+        assertTrue(encoder.matches("secret", "hash"));
+        assertTrue(encoder.matches("secret", "hash"));
+
+        verify(delegate, times(1)).matches("secret", "hash");
+        assertEquals(1, encoder.stats().hitCount());
+    }
+
+    @Test
+    void testMismatchIsNeverCached() {
+        when(delegate.matches("wrong", "hash")).thenReturn(false);
+
+        assertFalse(encoder.matches("wrong", "hash"));
+        assertFalse(encoder.matches("wrong", "hash"));
+
+        verify(delegate, times(2)).matches("wrong", "hash");
+    }
+
+    @Test
+    void testChangedHashRequiresFreshCheck() {
+        when(delegate.matches("secret", "old-hash")).thenReturn(true);
+        when(delegate.matches("secret", "new-hash")).thenReturn(false);
+
+        assertTrue(encoder.matches("secret", "old-hash"));
+
+        assertFalse(encoder.matches("secret", "new-hash"));
+    }
+
+    @Test
+    void testDifferentPasswordRequiresFreshCheck() {
+        when(delegate.matches("secret", "hash")).thenReturn(true);
+        when(delegate.matches("guess", "hash")).thenReturn(false);
+
+        assertTrue(encoder.matches("secret", "hash"));
+
+        assertFalse(encoder.matches("guess", "hash"));
+    }
+
+    @Test
+    void testInvalidateAllForcesFreshCheck() {
+        when(delegate.matches("secret", "hash")).thenReturn(true);
+        encoder.matches("secret", "hash");
+
+        encoder.invalidateAll();
+        encoder.matches("secret", "hash");
+
+        verify(delegate, times(2)).matches("secret", "hash");
+    }
+
+    @Test
+    void testEncodeDelegates() {
+        when(delegate.encode("secret")).thenReturn("hash");
+
+        assertEquals("hash", encoder.encode("secret"));
+    }
+}
@@ -12,7 +12,6 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetailsService;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,7 +20,7 @@ import static org.mockito.Mockito.*;
 class DefaultUserFilterTest {
 
     @Mock
-    private UserDetailsService userDetailsService;
+    private DefaultUserSnapshot defaultUserSnapshot;
 
     @Mock
     private HttpServletRequest request;
@@ -51,7 +50,7 @@ class DefaultUserFilterTest {
         UserPrincipal principal = new UserPrincipal(defaultUser);
 
         when(request.getHeader("Authorization")).thenReturn(null);
-        when(userDetailsService.loadUserByUsername("default_user")).thenReturn(principal);
+        when(defaultUserSnapshot.get()).thenReturn(principal);
 
         defaultUserFilter.doFilterInternal(request, response, filterChain);
 
@@ -67,7 +66,7 @@ class DefaultUserFilterTest {
         defaultUserFilter.doFilterInternal(request, response, filterChain);
 
         assertNull(SecurityContextHolder.getContext().getAuthentication());
-        verify(userDetailsService, never()).loadUserByUsername(any());
+        verify(defaultUserSnapshot, never()).get();
         verify(filterChain).doFilter(request, response);
     }
 }
@@ -0,0 +1,127 @@
+package org.chase.pierce.notevaultapi.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.chase.pierce.notevaultapi.entity.Role;
+import org.chase.pierce.notevaultapi.entity.User;
+import org.chase.pierce.notevaultapi.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultUserSnapshotTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private MeterRegistry meterRegistry;
+    private DefaultUserSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+        snapshot = new DefaultUserSnapshot(userRepository, beans.getBeanProvider(MeterRegistry.class));
+    }
+
+    private static User defaultUser(Role role) {
+        User user = new User();
+        user.setId(99L);
+        user.setUsername("default_user");
+        user.setPassword("encoded");
+        user.setRole(role);
+        user.setEnabled(true);
+        return user;
+    }
+
+    private long reloads(String result) {
+        return meterRegistry.get(DefaultUserSnapshot.RELOAD_METRIC).tag("result", result).timer().count();
+    }
+
+    private static Role role(UserDetails user) {
+        return ((UserPrincipal) user).user().getRole();
+    }
+
+    @Test
+    void testLoadsOnceAndServesFromMemory() {
+        when(userRepository.findByUsername("default_user")).thenReturn(Optional.of(defaultUser(Role.USER)));
+
+        UserDetails first = snapshot.get();
+        assertSame(first, snapshot.get());
+        assertEquals("default_user", first.getUsername());
+
+        verify(userRepository, times(1)).findByUsername("default_user");
+        assertEquals(1, reloads("success"));
+    }
+
+    @Test
+    void testInvalidateReloadsOnNextGet() {
+        when(userRepository.findByUsername("default_user"))
+                .thenReturn(Optional.of(defaultUser(Role.USER)), Optional.of(defaultUser(Role.ADMIN)));
+        snapshot.get();
+
+        snapshot.invalidate();
+
+        assertEquals(Role.ADMIN, role(snapshot.get()));
+        assertEquals(2, reloads("success"));
+    }
+
+    @Test
+    void testScheduledRefreshReadsDatabase() {
+        when(userRepository.findByUsername("default_user"))
+                .thenReturn(Optional.of(defaultUser(Role.USER)), Optional.of(defaultUser(Role.ADMIN)));
+        snapshot.get();
+
+        snapshot.refresh();
+
+        assertEquals(Role.ADMIN, role(snapshot.get()));
+        verify(userRepository, times(2)).findByUsername("default_user");
+    }
+
+    @Test
+    void testFailedRefreshKeepsPreviousSnapshot() {
+        when(userRepository.findByUsername("default_user"))
+                .thenReturn(Optional.of(defaultUser(Role.USER)))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+        UserDetails principal = snapshot.get();
+
+        snapshot.refresh();
+
+        assertSame(principal, snapshot.get());
+        assertEquals(1, reloads("failure"));
+    }
+
+    @Test
+    void testMissingDefaultUserFails() {
+        when(userRepository.findByUsername("default_user")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, snapshot::get);
+        assertEquals(1, reloads("failure"));
+    }
+
+    @Test
+    void testDefaultUserChangeInvalidatesSnapshot() {
+        when(userRepository.findByUsername("default_user")).thenReturn(Optional.of(defaultUser(Role.USER)));
+        snapshot.get();
+
+        snapshot.onUserAccountChanged(new UserAccountChangedEvent("someone_else"));
+        snapshot.get();
+        snapshot.onUserAccountChanged(new UserAccountChangedEvent("default_user"));
+        snapshot.get();
+
+        verify(userRepository, times(2)).findByUsername("default_user");
+    }
+}
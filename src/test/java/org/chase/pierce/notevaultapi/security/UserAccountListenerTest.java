@@ -0,0 +1,31 @@
+package org.chase.pierce.notevaultapi.security;
+
+import org.chase.pierce.notevaultapi.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class UserAccountListenerTest {
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private UserAccountListener userAccountListener;
+
+    @Test
+    void testPublishesChangeForUser() {
+        User user = new User();
+        user.setUsername("testuser");
+
+        userAccountListener.userChanged(user);
+
+        verify(eventPublisher).publishEvent(new UserAccountChangedEvent("testuser"));
+    }
+}
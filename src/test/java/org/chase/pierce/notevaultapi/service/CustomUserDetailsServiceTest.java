@@ -3,18 +3,25 @@ package org.chase.pierce.notevaultapi.service;
 import org.chase.pierce.notevaultapi.entity.Role;
 import org.chase.pierce.notevaultapi.entity.User;
 import org.chase.pierce.notevaultapi.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.chase.pierce.notevaultapi.security.UserAccountChangedEvent;
 import org.chase.pierce.notevaultapi.security.UserPrincipal;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -24,9 +31,27 @@ class CustomUserDetailsServiceTest {
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
+    private MeterRegistry meterRegistry;
     private CustomUserDetailsService customUserDetailsService;
 
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+        customUserDetailsService = new CustomUserDetailsService(userRepository, 100, Duration.ofMinutes(1),
+                beans.getBeanProvider(MeterRegistry.class));
+    }
+
+    private static User user(String username, Role role) {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername(username);
+        user.setPassword("hashed");
+        user.setRole(role);
+        user.setEnabled(true);
+        return user;
+    }
+
     @Test
     void testLoadsExistingUser() {
         User user = new User();
@@ -75,4 +100,64 @@ class CustomUserDetailsServiceTest {
         assertTrue(result.getAuthorities().stream()
                 .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")));
     }
+
+    @Test
+    void testRepeatedLoadsHitCache() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user("testuser", Role.USER)));
+
+        UserDetails first = customUserDetailsService.loadUserByUsername("testuser");
+        UserDetails second = customUserDetailsService.loadUserByUsername("testuser");
+
+        assertSame(first, second);
+        verify(userRepository, times(1)).findByUsername("testuser");
+        assertEquals(0.5, customUserDetailsService.stats().hitRate());
+    }
+
+    @Test
+    void testUnknownUserIsNotCached() {
+        when(userRepository.findByUsername("unknown")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> customUserDetailsService.loadUserByUsername("unknown"));
+        assertThrows(UsernameNotFoundException.class, () -> customUserDetailsService.loadUserByUsername("unknown"));
+
+        verify(userRepository, times(2)).findByUsername("unknown");
+    }
+
+    @Test
+    void testAccountChangeEvictsCachedUser() {
+        when(userRepository.findByUsername("testuser"))
+                .thenReturn(Optional.of(user("testuser", Role.USER)))
+                .thenReturn(Optional.of(user("testuser", Role.ADMIN)));
+        customUserDetailsService.loadUserByUsername("testuser");
+
+        customUserDetailsService.onUserAccountChanged(new UserAccountChangedEvent("testuser"));
+        UserDetails result = customUserDetailsService.loadUserByUsername("testuser");
+
+        assertTrue(result.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")));
+        verify(userRepository, times(2)).findByUsername("testuser");
+    }
+
+    @Test
+    void testEvictAllForcesReload() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user("testuser", Role.USER)));
+        customUserDetailsService.loadUserByUsername("testuser");
+
+        customUserDetailsService.evictAll();
+        customUserDetailsService.loadUserByUsername("testuser");
+
+        verify(userRepository, times(2)).findByUsername("testuser");
+    }
+
+    @Test
+    void testExportsHitRatioAndLoadLatency() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user("testuser", Role.USER)));
+        customUserDetailsService.loadUserByUsername("testuser");
+        customUserDetailsService.loadUserByUsername("testuser");
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", CustomUserDetailsService.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+        assertNotNull(meterRegistry.get("cache.load.duration").tag("cache", CustomUserDetailsService.CACHE_NAME)
+                .timeGauge());
+    }
 }
@@ -0,0 +1,77 @@
+package org.chase.pierce.notevaultapi.service;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.chase.pierce.notevaultapi.entity.Note;
+import org.chase.pierce.notevaultapi.entity.Role;
+import org.chase.pierce.notevaultapi.exception.NoteNotFoundException;
+import org.chase.pierce.notevaultapi.repository.NoteRepository;
+import org.chase.pierce.notevaultapi.repository.TagRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class NoteServiceMetricsTest {
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    @Mock
+    private TagRepository tagRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TagCache tagCache;
+
+    private PrometheusMeterRegistry meterRegistry;
+    private NoteService noteService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(
+                new NoteService(noteRepository, tagRepository, entityManager, tagCache));
+        proxyFactory.addAspect(new TimedAspect(meterRegistry));
+        noteService = proxyFactory.getProxy();
+    }
+
+    @Test
+    void testServiceCallsAppearInPrometheusScrape() {
+        Note note = new Note();
+        note.setId(1L);
+        note.setUserId("user123");
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
+
+        noteService.getNoteById(1L, "user123", Role.USER);
+
+        String scrape = meterRegistry.scrape();
+        assertTrue(scrape.contains("notevault_note_service_seconds_count{class=\"org.chase.pierce.notevaultapi.service.NoteService\","
+                + "exception=\"none\",method=\"getNoteById\"} 1"), scrape);
+        assertTrue(scrape.contains("notevault_note_service_seconds_bucket{"), "histogram buckets are published");
+    }
+
+    @Test
+    void testFailuresAreTaggedWithException() {
+        when(noteRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(NoteNotFoundException.class, () -> noteService.getNoteById(99L, "user123", Role.USER));
+
+        assertEquals(1, meterRegistry.get(NoteService.TIMER)
+                .tag("method", "getNoteById")
+                .tag("exception", "NoteNotFoundException")
+                .timer().count());
+    }
+}
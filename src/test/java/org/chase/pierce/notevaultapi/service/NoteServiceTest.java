@@ -1,6 +1,22 @@
 package org.chase.pierce.notevaultapi.service;
 
+import jakarta.persistence.EntityManager;
 import org.chase.pierce.notevaultapi.dto.CreateNoteRequest;
+import org.chase.pierce.notevaultapi.dto.NoteCursor;
+import org.chase.pierce.notevaultapi.dto.NoteDeleteResult;
+import org.chase.pierce.notevaultapi.dto.NoteDeletionRow;
+import org.chase.pierce.notevaultapi.dto.NoteFilter;
+import org.chase.pierce.notevaultapi.dto.NotePage;
+import org.chase.pierce.notevaultapi.dto.NoteNameMatch;
+import org.chase.pierce.notevaultapi.dto.NoteSearchPage;
+import org.chase.pierce.notevaultapi.dto.NoteSearchRow;
+import org.chase.pierce.notevaultapi.dto.NoteSort;
+import org.chase.pierce.notevaultapi.dto.NoteSummary;
+import org.chase.pierce.notevaultapi.dto.NoteSummaryRow;
+import org.chase.pierce.notevaultapi.dto.NoteVersion;
+import org.chase.pierce.notevaultapi.dto.PatchNoteRequest;
+import org.chase.pierce.notevaultapi.dto.SearchCursor;
+import org.chase.pierce.notevaultapi.dto.TagMode;
 import org.chase.pierce.notevaultapi.dto.UpdateNoteRequest;
 import org.chase.pierce.notevaultapi.entity.Note;
 import org.chase.pierce.notevaultapi.entity.Role;
@@ -14,21 +30,31 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import org.chase.pierce.notevaultapi.exception.NoteNotFoundException;
+import org.chase.pierce.notevaultapi.exception.NoteVersionMismatchException;
 import org.chase.pierce.notevaultapi.exception.UnauthorizedAccessException;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +66,12 @@ class NoteServiceTest {
     @Mock
     private TagRepository tagRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TagCache tagCache;
+
     @InjectMocks
     private NoteService noteService;
 
@@ -52,139 +84,344 @@ class NoteServiceTest {
         validRequest.setContent("Some content");
     }
 
+    // --- exportNotes ---
+
     @Test
-    void testGetAllNotesReturnsAllNotes() {
+    void testExportStreamsUserNotesAndDetachesEach() {
         Note note1 = new Note();
         note1.setId(1L);
-        note1.setName("Note 1");
-
         Note note2 = new Note();
         note2.setId(2L);
-        note2.setName("Note 2");
 
-        when(noteRepository.findAll()).thenReturn(List.of(note1, note2));
+        when(noteRepository.streamByUserId("user123")).thenReturn(Stream.of(note1, note2));
 
-        List<Note> result = noteService.getAllNotes();
+        List<Note> exported = new ArrayList<>();
+        noteService.exportNotes("user123", exported::add);
 
-        assertEquals(2, result.size());
-        assertEquals("Note 1", result.get(0).getName());
-        assertEquals("Note 2", result.get(1).getName());
-        verify(noteRepository).findAll();
+        assertEquals(List.of(note1, note2), exported);
+        InOrder inOrder = inOrder(entityManager);
+        inOrder.verify(entityManager).detach(note1);
+        inOrder.verify(entityManager).detach(note2);
+        verify(noteRepository, never()).streamAll();
     }
 
     @Test
-    void testGetAllNotesReturnsEmptyList() {
-        when(noteRepository.findAll()).thenReturn(List.of());
+    void testExportWithoutUserStreamsAllNotes() {
+        when(noteRepository.streamAll()).thenReturn(Stream.empty());
 
-        List<Note> result = noteService.getAllNotes();
+        List<Note> exported = new ArrayList<>();
+        noteService.exportNotes(null, exported::add);
 
-        assertTrue(result.isEmpty());
-        verify(noteRepository).findAll();
+        assertTrue(exported.isEmpty());
+        verify(noteRepository).streamAll();
     }
 
     @Test
-    void testFilterByTagsOnly() {
+    void testExportClosesStream() {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(noteRepository.streamByUserId("user123"))
+                .thenReturn(Stream.<Note>empty().onClose(() -> closed.set(true)));
+
+        noteService.exportNotes("user123", note -> { });
+
+        assertTrue(closed.get());
+    }
+
+    // --- getNotesByFilters ---
+
+    private static final NoteCursor START = NoteCursor.START;
+
+    private static NoteCursor key(long id) {
+        return new NoteCursor(LocalDateTime.of(2025, 1, 15, 10, 0).minusMinutes(id), id);
+    }
+
+    private static Note note(long id) {
         Note note = new Note();
-        note.setId(1L);
+        note.setId(id);
+        note.setName("Note " + id);
+        return note;
+    }
+
+    private static final Limit PAGE = Limit.of(51);
+
+    private static NoteFilter byUser(String userId) {
+        return NoteFilter.builder().userId(userId).build();
+    }
+
+    @Test
+    void testFilterByTagsPassesResolvedTagIds() {
         Set<String> tags = Set.of("work");
+        NoteFilter filter = NoteFilter.builder().tags(tags).build();
 
-        when(noteRepository.findByTagNames(tags)).thenReturn(List.of(note));
+        when(tagCache.getAllPresent(tags)).thenReturn(Map.of("work", 7L));
+        when(noteRepository.findPageKeys(filter, Set.of(7L), START, PAGE)).thenReturn(List.of(key(1)));
+        when(noteRepository.findAllById(List.of(1L))).thenReturn(List.of(note(1)));
 
-        List<Note> result = noteService.getNotesByFilters(tags, null, null);
+        NotePage<Note> result = noteService.getNotesByFilters(filter, START, 50);
 
-        assertEquals(1, result.size());
-        verify(noteRepository).findByTagNames(tags);
+        assertEquals(1, result.items().size());
+        verify(noteRepository).findPageKeys(filter, Set.of(7L), START, PAGE);
     }
 
     @Test
-    void testFilterByUserIdOnly() {
-        Note note = new Note();
-        note.setId(1L);
+    void testFilterWithoutTagsSkipsTagLookup() {
+        NoteFilter filter = NoteFilter.builder()
+                .userId("user123")
+                .notebookId(5L)
+                .modifiedSince(LocalDateTime.of(2025, 1, 1, 0, 0))
+                .createdFrom(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .createdBefore(LocalDateTime.of(2025, 1, 1, 0, 0))
+                .sort(NoteSort.CREATED_ASC)
+                .build();
+        when(noteRepository.findPageKeys(filter, Set.of(), START, PAGE)).thenReturn(List.of(key(1)));
+        when(noteRepository.findAllById(List.of(1L))).thenReturn(List.of(note(1)));
+
+        NotePage<Note> result = noteService.getNotesByFilters(filter, START, 50);
+
+        assertEquals(1, result.items().size());
+        verifyNoInteractions(tagCache, tagRepository);
+    }
+
+    @Test
+    void testFilterLooksUpUncachedTagsAndCachesThem() {
+        Set<String> tags = Set.of("work", "home");
+        NoteFilter filter = NoteFilter.builder().tags(tags).build();
+        Tag home = tag(8L, "home");
 
-        when(noteRepository.findByUserId("user123")).thenReturn(List.of(note));
+        when(tagCache.getAllPresent(tags)).thenReturn(Map.of("work", 7L));
+        when(tagRepository.findByNameIn(Set.of("home"))).thenReturn(List.of(home));
+        when(noteRepository.findPageKeys(eq(filter), eq(Set.of(7L, 8L)), any(), any(Limit.class)))
+                .thenReturn(List.of(key(1)));
+        when(noteRepository.findAllById(List.of(1L))).thenReturn(List.of(note(1)));
 
-        List<Note> result = noteService.getNotesByFilters(null, "user123", null);
+        NotePage<Note> result = noteService.getNotesByFilters(filter, START, 50);
 
-        assertEquals(1, result.size());
-        verify(noteRepository).findByUserId("user123");
+        assertEquals(1, result.items().size());
+        verify(tagCache).putAll(List.of(home));
     }
 
     @Test
-    void testFilterByNotebookIdOnly() {
-        Note note = new Note();
-        note.setId(1L);
+    void testFilterByUnknownTagsSkipsPageQuery() {
+        Set<String> tags = Set.of("missing");
 
-        when(noteRepository.findByNotebookId(5L)).thenReturn(List.of(note));
+        when(tagRepository.findByNameIn(tags)).thenReturn(List.of());
 
-        List<Note> result = noteService.getNotesByFilters(null, null, 5L);
+        NotePage<Note> result = noteService.getNotesByFilters(
+                NoteFilter.builder().tags(tags).userId("user123").build(), START, 50);
 
-        assertEquals(1, result.size());
-        verify(noteRepository).findByNotebookId(5L);
+        assertTrue(result.items().isEmpty());
+        assertFalse(result.hasNext());
+        verifyNoInteractions(noteRepository);
     }
 
     @Test
-    void testFilterByTagsAndUserId() {
-        Note note = new Note();
-        note.setId(1L);
-        Set<String> tags = Set.of("work");
+    void testFilterByAllTagsSkipsPageQueryWhenOneIsUnknown() {
+        Set<String> tags = Set.of("work", "missing");
+        NoteFilter filter = NoteFilter.builder().tags(tags).tagMode(TagMode.ALL).build();
 
-        when(noteRepository.findByTagNamesAndUserId(tags, "user123")).thenReturn(List.of(note));
+        when(tagCache.getAllPresent(tags)).thenReturn(Map.of("work", 7L));
+        when(tagRepository.findByNameIn(Set.of("missing"))).thenReturn(List.of());
 
-        List<Note> result = noteService.getNotesByFilters(tags, "user123", null);
+        NotePage<Note> result = noteService.getNotesByFilters(filter, START, 50);
 
-        assertEquals(1, result.size());
-        verify(noteRepository).findByTagNamesAndUserId(tags, "user123");
+        assertTrue(result.items().isEmpty());
+        verifyNoInteractions(noteRepository);
     }
 
     @Test
-    void testFilterByTagsAndNotebookId() {
-        Note note = new Note();
-        note.setId(1L);
-        Set<String> tags = Set.of("work");
+    void testFilterByAnyTagsQueriesWhenOneIsUnknown() {
+        Set<String> tags = Set.of("work", "missing");
+        NoteFilter filter = NoteFilter.builder().tags(tags).build();
 
-        when(noteRepository.findByTagNamesAndNotebookId(tags, 5L)).thenReturn(List.of(note));
+        when(tagCache.getAllPresent(tags)).thenReturn(Map.of("work", 7L));
+        when(tagRepository.findByNameIn(Set.of("missing"))).thenReturn(List.of());
+        when(noteRepository.findPageKeys(filter, Set.of(7L), START, PAGE)).thenReturn(List.of(key(1)));
+        when(noteRepository.findAllById(List.of(1L))).thenReturn(List.of(note(1)));
 
-        List<Note> result = noteService.getNotesByFilters(tags, null, 5L);
+        NotePage<Note> result = noteService.getNotesByFilters(filter, START, 50);
 
-        assertEquals(1, result.size());
-        verify(noteRepository).findByTagNamesAndNotebookId(tags, 5L);
+        assertEquals(1, result.items().size());
     }
 
     @Test
-    void testFilterByUserIdAndNotebookId() {
-        Note note = new Note();
-        note.setId(1L);
+    void testFilterByAllTagsPassesEveryTagId() {
+        Set<String> tags = Set.of("work", "home");
+        NoteFilter filter = NoteFilter.builder().tags(tags).tagMode(TagMode.ALL).build();
 
-        when(noteRepository.findByUserIdAndNotebookId("user123", 5L)).thenReturn(List.of(note));
+        when(tagCache.getAllPresent(tags)).thenReturn(Map.of("work", 7L, "home", 8L));
+        when(noteRepository.findPageKeys(filter, Set.of(7L, 8L), START, PAGE)).thenReturn(List.of(key(1)));
+        when(noteRepository.findAllById(List.of(1L))).thenReturn(List.of(note(1)));
 
-        List<Note> result = noteService.getNotesByFilters(null, "user123", 5L);
+        NotePage<Note> result = noteService.getNotesByFilters(filter, START, 50);
 
-        assertEquals(1, result.size());
-        verify(noteRepository).findByUserIdAndNotebookId("user123", 5L);
+        assertEquals(1, result.items().size());
     }
 
     @Test
-    void testFilterByAllThree() {
-        Note note = new Note();
-        note.setId(1L);
-        Set<String> tags = Set.of("work");
+    void testFilterByNoParams() {
+        when(noteRepository.findPageKeys(NoteFilter.NONE, Set.of(), START, PAGE)).thenReturn(List.of());
 
-        when(noteRepository.findByTagNamesAndUserIdAndNotebookId(tags, "user123", 5L)).thenReturn(List.of(note));
+        NotePage<Note> result = noteService.getNotesByFilters(NoteFilter.NONE, START, 50);
 
-        List<Note> result = noteService.getNotesByFilters(tags, "user123", 5L);
+        assertTrue(result.items().isEmpty());
+        assertFalse(result.hasNext());
+        verify(noteRepository, never()).findAllById(any());
+    }
 
-        assertEquals(1, result.size());
-        verify(noteRepository).findByTagNamesAndUserIdAndNotebookId(tags, "user123", 5L);
+    @Test
+    void testFilterDefaultsToNewestModifiedFirstAndTreatsBlankUserAsUnset() {
+        NoteFilter filter = NoteFilter.builder().userId(" ").build();
+
+        assertEquals(NoteSort.MODIFIED_DESC, filter.sort());
+        assertNull(filter.userId());
+        assertTrue(filter.tags().isEmpty());
+        assertEquals(NoteFilter.NONE, filter);
     }
 
     @Test
-    void testFilterByNoParams() {
-        when(noteRepository.findAll()).thenReturn(List.of());
+    void testPageFetchesOneExtraKeyAndReturnsNextCursor() {
+        when(noteRepository.findPageKeys(byUser("user123"), Set.of(), START, Limit.of(3)))
+                .thenReturn(List.of(key(5), key(4), key(3)));
+        when(noteRepository.findAllById(List.of(5L, 4L))).thenReturn(List.of(note(4), note(5)));
+
+        NotePage<Note> result = noteService.getNotesByFilters(byUser("user123"), START, 2);
+
+        assertEquals(List.of(5L, 4L), result.items().stream().map(Note::getId).toList());
+        assertEquals(key(4), result.next());
+    }
+
+    @Test
+    void testLastPageHasNoNextCursor() {
+        when(noteRepository.findPageKeys(byUser("user123"), Set.of(), START, Limit.of(3)))
+                .thenReturn(List.of(key(2), key(1)));
+        when(noteRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(note(1), note(2)));
+
+        NotePage<Note> result = noteService.getNotesByFilters(byUser("user123"), START, 2);
+
+        assertEquals(2, result.items().size());
+        assertNull(result.next());
+    }
+
+    @Test
+    void testSummariesGroupTagRowsPerNoteInPageOrder() {
+        LocalDateTime created = LocalDateTime.of(2025, 1, 15, 10, 0);
+        when(noteRepository.findPageKeys(byUser("user123"), Set.of(), START, PAGE))
+                .thenReturn(List.of(key(2), key(1)));
+        when(noteRepository.findSummaryRowsByIdIn(List.of(2L, 1L))).thenReturn(List.of(
+                new NoteSummaryRow(1L, "Note 1", "user123", 5L, "Work", created, created, 10L, "work"),
+                new NoteSummaryRow(1L, "Note 1", "user123", 5L, "Work", created, created, 11L, "urgent"),
+                new NoteSummaryRow(2L, "Note 2", "user123", null, null, created, created, null, null)));
+
+        NotePage<NoteSummary> result = noteService.getNoteSummariesByFilters(byUser("user123"), START, 50);
+
+        assertEquals(List.of(2L, 1L), result.items().stream().map(NoteSummary::id).toList());
+        NoteSummary second = result.items().get(1);
+        assertEquals(Set.of(new NoteSummary.TagRef(10L, "work"), new NoteSummary.TagRef(11L, "urgent")), second.tags());
+        assertEquals(new NoteSummary.NotebookRef(5L, "Work"), second.notebook());
+        assertTrue(result.items().getFirst().tags().isEmpty());
+        assertNull(result.items().getFirst().notebook());
+        verify(noteRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void testPageContinuesFromCursor() {
+        NoteCursor cursor = key(7);
+        when(noteRepository.findPageKeys(byUser("user123"), Set.of(), cursor, PAGE)).thenReturn(List.of());
+
+        noteService.getNotesByFilters(byUser("user123"), cursor, 50);
+
+        verify(noteRepository).findPageKeys(byUser("user123"), Set.of(), cursor, PAGE);
+    }
+
+    @ParameterizedTest(name = "limit {0} is clamped to {1}")
+    @MethodSource("pageSizeCases")
+    void testClampsPageSize(int requested, int expected) {
+        when(noteRepository.findPageKeys(any(), any(), any(), any(Limit.class))).thenReturn(List.of());
+
+        noteService.getNotesByFilters(NoteFilter.NONE, START, requested);
+
+        verify(noteRepository).findPageKeys(any(), any(), any(), eq(Limit.of(expected + 1)));
+    }
+
+    static Stream<Arguments> pageSizeCases() {
+        return Stream.of(
+                Arguments.of(0, 1),
+                Arguments.of(-5, 1),
+                Arguments.of(20, 20),
+                Arguments.of(10_000, NoteService.MAX_PAGE_SIZE)
+        );
+    }
+
+    // --- searchNotes ---
+
+    @Test
+    void testSearchScopesToUserAndMergesSummariesInRankOrder() {
+        LocalDateTime created = LocalDateTime.of(2025, 1, 15, 10, 0);
+        when(noteRepository.searchByUserId("roadmap", "user123", Float.POSITIVE_INFINITY, Long.MAX_VALUE, 51))
+                .thenReturn(List.of(new NoteSearchRow(2L, 0.6f, "<mark>roadmap</mark>"),
+                        new NoteSearchRow(1L, 0.2f, "the <mark>roadmap</mark>")));
+        when(noteRepository.findSummaryRowsByIdIn(List.of(2L, 1L))).thenReturn(List.of(
+                new NoteSummaryRow(1L, "Note 1", "user123", null, null, created, created, 10L, "work"),
+                new NoteSummaryRow(2L, "Roadmap", "user123", null, null, created, created, null, null)));
+
+        NoteSearchPage result = noteService.searchNotes("roadmap", "user123", SearchCursor.START, 50);
+
+        assertEquals(List.of(2L, 1L), result.items().stream().map(hit -> hit.note().id()).toList());
+        assertEquals(0.6f, result.items().getFirst().rank());
+        assertEquals("the <mark>roadmap</mark>", result.items().get(1).snippet());
+        assertEquals(Set.of(new NoteSummary.TagRef(10L, "work")), result.items().get(1).note().tags());
+        assertNull(result.next());
+        verify(noteRepository, never()).search(any(), anyFloat(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testSearchWithoutUserSearchesAllNotes() {
+        when(noteRepository.search("roadmap", Float.POSITIVE_INFINITY, Long.MAX_VALUE, 51)).thenReturn(List.of());
+
+        NoteSearchPage result = noteService.searchNotes("roadmap", null, SearchCursor.START, 50);
+
+        assertTrue(result.items().isEmpty());
+        verify(noteRepository, never()).findSummaryRowsByIdIn(any());
+    }
 
-        List<Note> result = noteService.getNotesByFilters(null, null, null);
+    @Test
+    void testSearchFetchesOneExtraRowAndContinuesFromLastRank() {
+        LocalDateTime created = LocalDateTime.of(2025, 1, 15, 10, 0);
+        SearchCursor cursor = new SearchCursor(0.5f, 9L);
+        when(noteRepository.searchByUserId("roadmap", "user123", 0.5f, 9L, 3)).thenReturn(List.of(
+                new NoteSearchRow(8L, 0.5f, ""), new NoteSearchRow(3L, 0.4f, ""), new NoteSearchRow(7L, 0.1f, "")));
+        when(noteRepository.findSummaryRowsByIdIn(List.of(8L, 3L))).thenReturn(List.of(
+                new NoteSummaryRow(8L, "Note 8", "user123", null, null, created, created, null, null),
+                new NoteSummaryRow(3L, "Note 3", "user123", null, null, created, created, null, null)));
+
+        NoteSearchPage result = noteService.searchNotes("roadmap", "user123", cursor, 2);
+
+        assertEquals(2, result.items().size());
+        assertEquals(new SearchCursor(0.4f, 3L), result.next());
+    }
+
+    // --- lookupNotesByName ---
+
+    @Test
+    void testLookupSetsThresholdThenScopesToUser() {
+        NoteNameMatch match = new NoteNameMatch(4L, "Meeting Notes", LocalDateTime.of(2025, 1, 15, 10, 0), 0.6f);
+        when(noteRepository.lookupByNameAndUserId("meetng", "user123", 10)).thenReturn(List.of(match));
+
+        List<NoteNameMatch> result = noteService.lookupNotesByName("meetng", "user123", 10);
+
+        assertEquals(List.of(match), result);
+        InOrder inOrder = inOrder(noteRepository);
+        inOrder.verify(noteRepository).setWordSimilarityThreshold(NoteService.LOOKUP_SIMILARITY_THRESHOLD);
+        inOrder.verify(noteRepository).lookupByNameAndUserId("meetng", "user123", 10);
+        verify(noteRepository, never()).lookupByName(any(), anyInt());
+    }
+
+    @Test
+    void testLookupWithoutUserLooksUpAllNotesAndCapsLimit() {
+        when(noteRepository.lookupByName("meetng", NoteService.MAX_LOOKUP_RESULTS)).thenReturn(List.of());
 
-        assertTrue(result.isEmpty());
-        verify(noteRepository).findAll();
+        assertTrue(noteService.lookupNotesByName("meetng", null, 1_000).isEmpty());
+        verify(noteRepository, never()).lookupByNameAndUserId(any(), any(), anyInt());
     }
 
     // --- getNoteById ---
@@ -249,38 +486,68 @@ class NoteServiceTest {
         assertTrue(exception.getMessage().contains("1"));
     }
 
+    // --- getNoteVersion / getChangeStamp ---
+
+    @Test
+    void testGetNoteVersionChecksOwnership() {
+        when(noteRepository.findVersionById(1L)).thenReturn(Optional.of(new NoteVersion("user123", 5L)));
+
+        assertEquals(5L, noteService.getNoteVersion(1L, "user123", Role.USER));
+        assertEquals(5L, noteService.getNoteVersion(1L, "admin_user", Role.ADMIN));
+        assertThrows(UnauthorizedAccessException.class, () -> noteService.getNoteVersion(1L, "other_user", Role.USER));
+        verify(noteRepository, never()).findById(any());
+    }
+
+    @Test
+    void testGetNoteVersionThrowsWhenNotFound() {
+        when(noteRepository.findVersionById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(NoteNotFoundException.class, () -> noteService.getNoteVersion(99L, "user123", Role.USER));
+    }
+
+    @Test
+    void testChangeStampOfUserOrOfAllNotes() {
+        when(noteRepository.findChangeStampByUserId("user123")).thenReturn(12L);
+        when(noteRepository.findChangeStampOfAllNotes()).thenReturn(40L);
+
+        assertEquals(12L, noteService.getChangeStamp("user123"));
+        assertEquals(40L, noteService.getChangeStamp(null));
+        assertEquals(40L, noteService.getChangeStamp(" "));
+    }
+
+    @Test
+    void testCompactChangeLogFoldsTheLog() {
+        noteService.compactChangeLog();
+
+        verify(noteRepository).compactChangeLog();
+    }
+
     // --- deleteNoteById ---
 
     @Test
     void testDeleteNoteByIdSucceeds() {
-        Note note = new Note();
-        note.setId(1L);
-        note.setUserId("user123");
-
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
+        when(noteRepository.deleteAllowedByIdIn(new Long[]{1L}, "user123", false))
+                .thenReturn(List.of(new NoteDeletionRow(1L, true, true)));
 
         noteService.deleteNoteById(1L, "user123", Role.USER);
 
-        verify(noteRepository).findById(1L);
-        verify(noteRepository).deleteById(1L);
+        verify(noteRepository).deleteAllowedByIdIn(new Long[]{1L}, "user123", false);
+        verifyNoMoreInteractions(noteRepository);
     }
 
     @Test
     void testDeleteNoteByIdAdminSucceeds() {
-        Note note = new Note();
-        note.setId(1L);
-        note.setUserId("user123");
-
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
+        when(noteRepository.deleteAllowedByIdIn(new Long[]{1L}, "admin_user", true))
+                .thenReturn(List.of(new NoteDeletionRow(1L, true, true)));
 
         noteService.deleteNoteById(1L, "admin_user", Role.ADMIN);
 
-        verify(noteRepository).deleteById(1L);
+        verify(noteRepository).deleteAllowedByIdIn(new Long[]{1L}, "admin_user", true);
     }
 
     @Test
     void testDeleteNoteByIdThrowsWhenNotFound() {
-        when(noteRepository.findById(99L)).thenReturn(Optional.empty());
+        when(noteRepository.deleteAllowedByIdIn(new Long[]{99L}, "user123", false)).thenReturn(List.of());
 
         NoteNotFoundException exception = assertThrows(
                 NoteNotFoundException.class,
@@ -288,24 +555,81 @@ class NoteServiceTest {
         );
 
         assertEquals("Note not found with id: 99", exception.getMessage());
-        verify(noteRepository).findById(99L);
-        verify(noteRepository, never()).deleteById(any());
     }
 
     @Test
-    void testDeleteNoteByIdForbiddenForNonOwner() {
-        Note note = new Note();
-        note.setId(1L);
-        note.setUserId("user123");
+    void testDeleteNoteByIdThrowsWhenDeletedConcurrently() {
+        when(noteRepository.deleteAllowedByIdIn(new Long[]{1L}, "user123", false))
+                .thenReturn(List.of(new NoteDeletionRow(1L, true, false)));
 
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
+        assertThrows(NoteNotFoundException.class, () -> noteService.deleteNoteById(1L, "user123", Role.USER));
+    }
 
-        assertThrows(
+    @Test
+    void testDeleteNoteByIdForbiddenForNonOwner() {
+        when(noteRepository.deleteAllowedByIdIn(new Long[]{1L}, "other_user", false))
+                .thenReturn(List.of(new NoteDeletionRow(1L, false, false)));
+
+        UnauthorizedAccessException exception = assertThrows(
                 UnauthorizedAccessException.class,
                 () -> noteService.deleteNoteById(1L, "other_user", Role.USER)
         );
 
-        verify(noteRepository, never()).deleteById(any());
+        assertEquals("You do not have permission to access note with id: 1", exception.getMessage());
+    }
+
+    // --- deleteNotesByIds / deleteNotesByFilter ---
+
+    @Test
+    void testDeleteNotesByIdsSortsIdsByOutcomeInRequestOrder() {
+        when(noteRepository.deleteAllowedByIdIn(new Long[]{3L, 1L, 2L, 3L, 9L}, "user123", false))
+                .thenReturn(List.of(new NoteDeletionRow(1L, true, true), new NoteDeletionRow(2L, false, false),
+                        new NoteDeletionRow(3L, true, true)));
+
+        NoteDeleteResult result = noteService.deleteNotesByIds(List.of(3L, 1L, 2L, 3L, 9L), "user123", Role.USER);
+
+        assertEquals(2, result.deletedCount());
+        assertEquals(List.of(3L, 1L), result.deleted());
+        assertEquals(List.of(2L), result.refused());
+        assertEquals(List.of(9L), result.notFound());
+    }
+
+    @Test
+    void testDeleteNotesByIdsAsAdmin() {
+        when(noteRepository.deleteAllowedByIdIn(new Long[]{1L}, "admin_user", true))
+                .thenReturn(List.of(new NoteDeletionRow(1L, true, true)));
+
+        NoteDeleteResult result = noteService.deleteNotesByIds(List.of(1L), "admin_user", Role.ADMIN);
+
+        assertEquals(List.of(1L), result.deleted());
+        assertTrue(result.refused().isEmpty());
+    }
+
+    @Test
+    void testDeleteNotesByFilterPassesResolvedTagIds() {
+        Set<String> tags = Set.of("work");
+        NoteFilter filter = NoteFilter.builder().tags(tags).userId("user123").build();
+
+        when(tagCache.getAllPresent(tags)).thenReturn(Map.of("work", 7L));
+        when(noteRepository.deleteByFilter(filter, Set.of(7L))).thenReturn(4);
+
+        NoteDeleteResult result = noteService.deleteNotesByFilter(filter);
+
+        assertEquals(4, result.deletedCount());
+        assertNull(result.deleted());
+    }
+
+    @Test
+    void testDeleteNotesByUnknownTagsDeletesNothing() {
+        Set<String> tags = Set.of("missing");
+
+        when(tagRepository.findByNameIn(tags)).thenReturn(List.of());
+
+        NoteDeleteResult result = noteService.deleteNotesByFilter(
+                NoteFilter.builder().tags(tags).userId("user123").build());
+
+        assertEquals(0, result.deletedCount());
+        verifyNoInteractions(noteRepository);
     }
 
     // --- createNote ---
@@ -372,7 +696,7 @@ class NoteServiceTest {
         Note result = noteService.createNote(validRequest, "user123");
 
         assertTrue(result.getTags().isEmpty());
-        verify(tagRepository, never()).findByName(any());
+        verifyNoInteractions(tagRepository);
     }
 
     @Test
@@ -383,58 +707,158 @@ class NoteServiceTest {
         Note result = noteService.createNote(validRequest, "user123");
 
         assertTrue(result.getTags().isEmpty());
-        verify(tagRepository, never()).findByName(any());
+        verifyNoInteractions(tagRepository);
     }
 
     @Test
     void testReusesTag() {
-        Tag existingTag = new Tag();
-        existingTag.setId(1L);
-        existingTag.setName("work");
+        Tag existingTag = tag(1L, "work");
 
         validRequest.setTags(Set.of("work"));
-        when(tagRepository.findByName("work")).thenReturn(Optional.of(existingTag));
+        when(tagRepository.findByNameIn(Set.of("work"))).thenReturn(List.of(existingTag));
         when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         Note result = noteService.createNote(validRequest, "user123");
 
         assertEquals(1, result.getTags().size());
         assertTrue(result.getTags().contains(existingTag));
-        verify(tagRepository, never()).save(any(Tag.class));
+        verify(tagRepository, never()).insertIfAbsent(any());
     }
 
     @Test
     void testCreatesAndSavesTag() {
-        Tag savedTag = new Tag();
-        savedTag.setId(1L);
-        savedTag.setName("newtag");
-
         validRequest.setTags(Set.of("newtag"));
-        when(tagRepository.findByName("newtag")).thenReturn(Optional.empty());
-        when(tagRepository.save(any(Tag.class))).thenReturn(savedTag);
+        when(tagRepository.findByNameIn(Set.of("newtag"))).thenReturn(List.of());
+        when(tagRepository.insertIfAbsent(new String[]{"newtag"})).thenReturn(List.of(tag(1L, "newtag")));
         when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         Note result = noteService.createNote(validRequest, "user123");
 
         assertEquals(1, result.getTags().size());
-        verify(tagRepository).save(any(Tag.class));
+        verify(tagRepository, times(1)).findByNameIn(any());
+    }
+
+    @Test
+    void testCachedTagsSkipRepository() {
+        validRequest.setTags(Set.of("work"));
+        when(tagCache.getAllPresent(Set.of("work"))).thenReturn(Map.of("work", 1L));
+        when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Note result = noteService.createNote(validRequest, "user123");
+
+        Tag tag = result.getTags().iterator().next();
+        assertEquals(1L, tag.getId());
+        assertEquals("work", tag.getName());
+        verifyNoInteractions(tagRepository);
+    }
+
+    @Test
+    void testCachesResolvedTags() {
+        Tag work = tag(1L, "work");
+        Tag home = tag(2L, "home");
+
+        validRequest.setTags(Set.of("work", "home"));
+        when(tagRepository.findByNameIn(Set.of("work", "home"))).thenReturn(List.of(work));
+        when(tagRepository.insertIfAbsent(new String[]{"home"})).thenReturn(List.of(home));
+        when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        noteService.createNote(validRequest, "user123");
+
+        verify(tagCache).putAll(List.of(work, home));
+    }
+
+    @Test
+    void testResolvesTagsInBulk() {
+        Tag work = tag(1L, "work");
+        Tag home = tag(2L, "home");
+        Tag urgent = tag(3L, "urgent");
+
+        validRequest.setTags(Set.of("work", "home", "urgent"));
+        when(tagRepository.findByNameIn(Set.of("work", "home", "urgent"))).thenReturn(List.of(work));
+        when(tagRepository.insertIfAbsent(any())).thenReturn(List.of(home, urgent));
+        when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Note result = noteService.createNote(validRequest, "user123");
+
+        assertEquals(Set.of(work, home, urgent), result.getTags());
+        ArgumentCaptor<String[]> namesCaptor = ArgumentCaptor.forClass(String[].class);
+        verify(tagRepository).insertIfAbsent(namesCaptor.capture());
+        assertEquals(Set.of("home", "urgent"), Set.of(namesCaptor.getValue()));
+        verify(tagRepository, times(1)).findByNameIn(any());
+    }
+
+    @Test
+    void testCreateNotesResolvesTagsOnceForTheBatch() {
+        Tag work = tag(1L, "work");
+        Tag home = tag(2L, "home");
+        when(tagRepository.findByNameIn(Set.of("work", "home"))).thenReturn(List.of(work, home));
+        when(noteRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Note> result = noteService.createNotes(List.of(
+                createRequest("First", Set.of("work")),
+                createRequest("Second", Set.of("work", "home")),
+                createRequest("Third", null)), "user123");
+
+        assertEquals(List.of("First", "Second", "Third"), result.stream().map(Note::getName).toList());
+        assertEquals(Set.of(work), result.get(0).getTags());
+        assertEquals(Set.of(work, home), result.get(1).getTags());
+        assertTrue(result.get(2).getTags().isEmpty());
+        verify(tagRepository, times(1)).findByNameIn(any());
+        verify(tagRepository, never()).insertIfAbsent(any());
+        verify(noteRepository, never()).save(any());
+    }
+
+    @Test
+    void testCreateNotesSanitizesEveryNote() {
+        when(tagCache.getAllPresent(Set.of("work"))).thenReturn(Map.of("work", 1L));
+        when(noteRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Note> result = noteService.createNotes(List.of(
+                createRequest("<b>Bold</b>", Set.of("<i>work</i>"))), "user123");
+
+        Note note = result.getFirst();
+        assertEquals("Bold", note.getName());
+        assertEquals("user123", note.getUserId());
+        assertEquals(Set.of(1L), note.getTags().stream().map(Tag::getId).collect(Collectors.toSet()));
+        verifyNoInteractions(tagRepository);
+    }
+
+    @Test
+    void testPicksUpTagsInsertedConcurrently() {
+        Tag raced = tag(1L, "raced");
+
+        validRequest.setTags(Set.of("raced"));
+        when(tagRepository.findByNameIn(Set.of("raced")))
+                .thenReturn(List.of())
+                .thenReturn(List.of(raced));
+        when(tagRepository.insertIfAbsent(any())).thenReturn(List.of());
+        when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Note result = noteService.createNote(validRequest, "user123");
+
+        assertEquals(Set.of(raced), result.getTags());
+        verify(tagRepository, times(2)).findByNameIn(any());
     }
 
     @Test
     void testSanitizesTagName() {
         validRequest.setTags(Set.of("<b>work</b>"));
-        when(tagRepository.findByName("work")).thenReturn(Optional.empty());
-        Tag savedTag = new Tag();
-        savedTag.setId(1L);
-        savedTag.setName("work");
-        when(tagRepository.save(any(Tag.class))).thenReturn(savedTag);
+        when(tagRepository.findByNameIn(Set.of("work"))).thenReturn(List.of());
+        when(tagRepository.insertIfAbsent(any())).thenReturn(List.of(tag(1L, "work")));
         when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         noteService.createNote(validRequest, "user123");
 
-        ArgumentCaptor<Tag> tagCaptor = ArgumentCaptor.forClass(Tag.class);
-        verify(tagRepository).save(tagCaptor.capture());
-        assertEquals("work", tagCaptor.getValue().getName());
+        ArgumentCaptor<String[]> namesCaptor = ArgumentCaptor.forClass(String[].class);
+        verify(tagRepository).insertIfAbsent(namesCaptor.capture());
+        assertArrayEquals(new String[]{"work"}, namesCaptor.getValue());
+    }
+
+    private static Tag tag(Long id, String name) {
+        Tag tag = new Tag();
+        tag.setId(id);
+        tag.setName(name);
+        return tag;
     }
 
     // --- updateNote ---
@@ -451,15 +875,15 @@ class NoteServiceTest {
         updateRequest.setName("Updated Name");
         updateRequest.setContent("Updated content");
 
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(existingNote));
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
         when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        Note result = noteService.updateNote(1L, updateRequest, "user123", Role.USER);
+        Note result = noteService.updateNote(1L, updateRequest, null, "user123", Role.USER);
 
         assertEquals("Updated Name", result.getName());
         assertEquals("Updated content", result.getContent());
         assertEquals("user123", result.getUserId());
-        verify(noteRepository).findById(1L);
+        verify(noteRepository).findWithNotebookById(1L);
         verify(noteRepository).save(any(Note.class));
     }
 
@@ -475,13 +899,13 @@ class NoteServiceTest {
         updateRequest.setName("Admin Updated");
         updateRequest.setContent("Admin content");
 
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(existingNote));
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
         when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        Note result = noteService.updateNote(1L, updateRequest, "admin_user", Role.ADMIN);
+        Note result = noteService.updateNote(1L, updateRequest, null, "admin_user", Role.ADMIN);
 
         assertEquals("Admin Updated", result.getName());
-        assertEquals("admin_user", result.getUserId());
+        assertEquals("user123", result.getUserId());
     }
 
     @Test
@@ -490,15 +914,15 @@ class NoteServiceTest {
         updateRequest.setName("Updated Name");
         updateRequest.setContent("Updated content");
 
-        when(noteRepository.findById(99L)).thenReturn(Optional.empty());
+        when(noteRepository.findWithNotebookById(99L)).thenReturn(Optional.empty());
 
         NoteNotFoundException exception = assertThrows(
                 NoteNotFoundException.class,
-                () -> noteService.updateNote(99L, updateRequest, "user123", Role.USER)
+                () -> noteService.updateNote(99L, updateRequest, null, "user123", Role.USER)
         );
 
         assertEquals("Note not found with id: 99", exception.getMessage());
-        verify(noteRepository).findById(99L);
+        verify(noteRepository).findWithNotebookById(99L);
         verify(noteRepository, never()).save(any(Note.class));
     }
 
@@ -512,11 +936,11 @@ class NoteServiceTest {
         updateRequest.setName("Updated Name");
         updateRequest.setContent("Updated content");
 
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(existingNote));
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
 
         assertThrows(
                 UnauthorizedAccessException.class,
-                () -> noteService.updateNote(1L, updateRequest, "other_user", Role.USER)
+                () -> noteService.updateNote(1L, updateRequest, null, "other_user", Role.USER)
         );
 
         verify(noteRepository, never()).save(any(Note.class));
@@ -534,10 +958,10 @@ class NoteServiceTest {
         updateRequest.setName("<script>alert('xss')</script>Updated");
         updateRequest.setContent("<p>Safe</p><script>evil()</script>");
 
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(existingNote));
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
         when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        Note result = noteService.updateNote(1L, updateRequest, "user123", Role.USER);
+        Note result = noteService.updateNote(1L, updateRequest, null, "user123", Role.USER);
 
         assertEquals("alert('xss')Updated", result.getName());
         assertEquals("<p>Safe</p>evil()", result.getContent());
@@ -561,11 +985,11 @@ class NoteServiceTest {
         updateRequest.setContent("Updated content");
         updateRequest.setTags(Set.of("work"));
 
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(existingNote));
-        when(tagRepository.findByName("work")).thenReturn(Optional.of(existingTag));
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
+        when(tagRepository.findByNameIn(Set.of("work"))).thenReturn(List.of(existingTag));
         when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        Note result = noteService.updateNote(1L, updateRequest, "user123", Role.USER);
+        Note result = noteService.updateNote(1L, updateRequest, null, "user123", Role.USER);
 
         assertEquals(1, result.getTags().size());
         assertTrue(result.getTags().contains(existingTag));
@@ -589,10 +1013,10 @@ class NoteServiceTest {
         updateRequest.setContent("Updated content");
         updateRequest.setTags(null);
 
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(existingNote));
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
         when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        Note result = noteService.updateNote(1L, updateRequest, "user123", Role.USER);
+        Note result = noteService.updateNote(1L, updateRequest, null, "user123", Role.USER);
 
         assertTrue(result.getTags().isEmpty());
     }
@@ -614,14 +1038,196 @@ class NoteServiceTest {
         updateRequest.setContent("Updated content");
         updateRequest.setTags(Set.of("newtag"));
 
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(existingNote));
-        when(tagRepository.findByName("newtag")).thenReturn(Optional.empty());
-        when(tagRepository.save(any(Tag.class))).thenReturn(savedTag);
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
+        when(tagRepository.findByNameIn(Set.of("newtag"))).thenReturn(List.of());
+        when(tagRepository.insertIfAbsent(new String[]{"newtag"})).thenReturn(List.of(savedTag));
         when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        Note result = noteService.updateNote(1L, updateRequest, "user123", Role.USER);
+        Note result = noteService.updateNote(1L, updateRequest, null, "user123", Role.USER);
 
         assertEquals(1, result.getTags().size());
-        verify(tagRepository).save(any(Tag.class));
+        verify(tagRepository).insertIfAbsent(new String[]{"newtag"});
+    }
+
+    @Test
+    void testUpdateNoteRejectsOtherVersionWithoutWriting() {
+        Note existingNote = note(1);
+        existingNote.setUserId("user123");
+        existingNote.setVersion(3L);
+
+        UpdateNoteRequest updateRequest = new UpdateNoteRequest();
+        updateRequest.setName("Updated Name");
+        updateRequest.setContent("Updated content");
+
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
+
+        assertThrows(NoteVersionMismatchException.class,
+                () -> noteService.updateNote(1L, updateRequest, Set.of(2L), "user123", Role.USER));
+        assertEquals("Note 1", existingNote.getName());
+        verify(noteRepository, never()).save(any(Note.class));
+        verify(noteRepository, never()).saveAndFlush(any(Note.class));
+    }
+
+    @Test
+    void testUpdateNoteWithExpectedVersionFlushesConditionalUpdate() {
+        Note existingNote = note(1);
+        existingNote.setUserId("user123");
+        existingNote.setVersion(3L);
+
+        UpdateNoteRequest updateRequest = new UpdateNoteRequest();
+        updateRequest.setName("Updated Name");
+        updateRequest.setContent("Updated content");
+
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
+        when(noteRepository.saveAndFlush(existingNote)).thenReturn(existingNote);
+
+        // The note only has to be at one of the versions listed in If-Match
+        Note result = noteService.updateNote(1L, updateRequest, Set.of(2L, 3L), "user123", Role.USER);
+
+        assertEquals("Updated Name", result.getName());
+        verify(noteRepository, never()).save(any(Note.class));
+    }
+
+    @Test
+    void testUpdateNoteReportsConcurrentChangeAsVersionMismatch() {
+        Note existingNote = note(1);
+        existingNote.setUserId("user123");
+        existingNote.setVersion(3L);
+
+        UpdateNoteRequest updateRequest = new UpdateNoteRequest();
+        updateRequest.setName("Updated Name");
+        updateRequest.setContent("Updated content");
+
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
+        when(noteRepository.saveAndFlush(existingNote))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Note.class, 1L));
+
+        assertThrows(NoteVersionMismatchException.class,
+                () -> noteService.updateNote(1L, updateRequest, Set.of(3L), "user123", Role.USER));
+    }
+
+    @Test
+    void testPatchNoteRejectsOtherVersion() {
+        Note existingNote = note(1);
+        existingNote.setUserId("user123");
+        existingNote.setVersion(3L);
+
+        PatchNoteRequest patch = new PatchNoteRequest();
+        patch.setName(Optional.of("New Name"));
+
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
+
+        assertThrows(NoteVersionMismatchException.class,
+                () -> noteService.patchNote(1L, patch, Set.of(4L), "user123", Role.USER));
+        assertEquals("Note 1", existingNote.getName());
+    }
+
+    // --- patchNote ---
+
+    @Test
+    void testPatchNoteChangesOnlySentFields() {
+        Note existingNote = note(1);
+        existingNote.setName("Old Name");
+        existingNote.setContent("Old content");
+        existingNote.setUserId("user123");
+        existingNote.setTags(new HashSet<>(Set.of(tag(1L, "work"))));
+
+        PatchNoteRequest patch = new PatchNoteRequest();
+        patch.setName(Optional.of("<b>New</b> Name"));
+
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
+        when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Note result = noteService.patchNote(1L, patch, null, "user123", Role.USER);
+
+        assertEquals("New Name", result.getName());
+        assertEquals("Old content", result.getContent());
+        assertEquals(Set.of("work"), result.getTags().stream().map(Tag::getName).collect(Collectors.toSet()));
+        verify(noteRepository, never()).findById(any());
+        verifyNoInteractions(tagRepository, tagCache);
+    }
+
+    @Test
+    void testPatchNoteDiffsTags() {
+        Tag work = tag(1L, "work");
+        Tag old = tag(2L, "old");
+        Note existingNote = note(1);
+        existingNote.setUserId("user123");
+        existingNote.setTags(new HashSet<>(Set.of(work, old)));
+
+        PatchNoteRequest patch = new PatchNoteRequest();
+        patch.setTags(Optional.of(Set.of("work", "new")));
+
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(existingNote));
+        when(tagCache.getAllPresent(Set.of("new"))).thenReturn(Map.of("new", 3L));
+        when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Note result = noteService.patchNote(1L, patch, null, "user123", Role.USER);
+
+        assertTrue(result.getTags().contains(work));
+        assertEquals(Set.of("work", "new"), result.getTags().stream().map(Tag::getName).collect(Collectors.toSet()));
+        verifyNoInteractions(tagRepository);
+    }
+
+    @Test
+    void testPatchNoteWithNullTagsRemovesThem() {
+        Note existingNote = note(1);
+        existingNote.setUserId("user123");
+        existingNote.setTags(new HashSet<>(Set.of(tag(1L, "work"))));
+
+        PatchNoteRequest patch = new PatchNoteRequest();
+        patch.setTags(Optional.empty());
+
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(existingNote));
+        when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertTrue(noteService.patchNote(1L, patch, null, "user123", Role.USER).getTags().isEmpty());
+        verifyNoInteractions(tagRepository, tagCache);
+    }
+
+    @Test
+    void testPatchNoteThrowsWhenNotFound() {
+        when(noteRepository.findWithNotebookById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(NoteNotFoundException.class,
+                () -> noteService.patchNote(99L, new PatchNoteRequest(), null, "user123", Role.USER));
+        verify(noteRepository, never()).save(any(Note.class));
+    }
+
+    @Test
+    void testPatchNoteForbiddenForNonOwner() {
+        Note existingNote = note(1);
+        existingNote.setUserId("user123");
+
+        when(noteRepository.findWithNotebookById(1L)).thenReturn(Optional.of(existingNote));
+
+        assertThrows(UnauthorizedAccessException.class,
+                () -> noteService.patchNote(1L, new PatchNoteRequest(), null, "other_user", Role.USER));
+        verify(noteRepository, never()).save(any(Note.class));
+    }
+
+    @Test
+    void testAdminPatchKeepsOwner() {
+        Note existingNote = note(1);
+        existingNote.setUserId("user123");
+        existingNote.setTags(new HashSet<>());
+
+        PatchNoteRequest patch = new PatchNoteRequest();
+        patch.setTags(Optional.empty());
+
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(existingNote));
+        when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Note result = noteService.patchNote(1L, patch, null, "admin", Role.ADMIN);
+
+        assertEquals("user123", result.getUserId());
+    }
+
+    private static CreateNoteRequest createRequest(String name, Set<String> tags) {
+        CreateNoteRequest request = new CreateNoteRequest();
+        request.setName(name);
+        request.setContent("<p>Content</p>");
+        request.setTags(tags);
+        return request;
     }
 }
@@ -0,0 +1,95 @@
+package org.chase.pierce.notevaultapi.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.chase.pierce.notevaultapi.entity.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagCacheTest {
+
+    private MeterRegistry meterRegistry;
+    private TagCache tagCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+        tagCache = new TagCache(100, Duration.ofHours(1), beans.getBeanProvider(MeterRegistry.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Tag tag(Long id, String name) {
+        Tag tag = new Tag();
+        tag.setId(id);
+        tag.setName(name);
+        return tag;
+    }
+
+    @Test
+    void testReturnsOnlyCachedNames() {
+        tagCache.putAll(List.of(tag(1L, "work")));
+
+        assertEquals(Map.of("work", 1L), tagCache.getAllPresent(Set.of("work", "home")));
+    }
+
+    @Test
+    void testRecordsHitsAndMisses() {
+        tagCache.putAll(List.of(tag(1L, "work")));
+
+        tagCache.getAllPresent(Set.of("work", "home"));
+
+        assertEquals(1, tagCache.stats().hitCount());
+        assertEquals(1, tagCache.stats().missCount());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", TagCache.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testDefersPutUntilCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        tagCache.putAll(List.of(tag(1L, "work")));
+
+        assertTrue(tagCache.getAllPresent(Set.of("work")).isEmpty());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(Map.of("work", 1L), tagCache.getAllPresent(Set.of("work")));
+    }
+
+    @Test
+    void testDiscardsPutOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        tagCache.putAll(List.of(tag(1L, "work")));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertTrue(tagCache.getAllPresent(Set.of("work")).isEmpty());
+    }
+
+    @Test
+    void testInvalidateAll() {
+        tagCache.putAll(List.of(tag(1L, "work")));
+
+        tagCache.invalidateAll();
+
+        assertTrue(tagCache.getAllPresent(Set.of("work")).isEmpty());
+    }
+}
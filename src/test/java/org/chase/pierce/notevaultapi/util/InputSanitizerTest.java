@@ -5,6 +5,7 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.NullSource;
 
+import java.time.Duration;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -68,7 +69,18 @@ class InputSanitizerTest {
                 // Dangerous protocols
                 Arguments.of("<a href=\"javascript:alert('xss')\">Click</a>", "Click"),
                 Arguments.of("<a href=\"data:text/html,<script>alert(1)</script>\">Click</a>", "Click"),
-                Arguments.of("<a href=\"vbscript:run()\">Click</a>", "Click")
+                Arguments.of("<a href=\"vbscript:run()\">Click</a>", "Click"),
+                Arguments.of("<a href='javascript:alert(1)'>Click</a>", "Click"),
+                Arguments.of("<a href=\" JavaScript :alert(1)\">Click</a> after", "Click after"),
+                Arguments.of("<img src=\"data:image/svg+xml,x\">", "<img src=\"image/svg+xml,x\">"),
+                // Unquoted and mixed-case handlers
+                Arguments.of("<img src=x onerror=alert(1)>", "<img src=x >"),
+                Arguments.of("<p OnMouseOver='x()'>Hi</p>", "<p >Hi</p>"),
+                // Quoted values may contain '>'
+                Arguments.of("<p title=\"a > b\" onclick=\"x()\">Hi</p>", "<p title=\"a > b\" >Hi</p>"),
+                // Tags left open at the end of the input
+                Arguments.of("Note <script src=x", "Note"),
+                Arguments.of("Note <img src=x onerror=alert(1)", "Note <img src=x")
         );
     }
 
@@ -85,7 +97,30 @@ class InputSanitizerTest {
                 "<ul><li>Item 1</li><li>Item 2</li></ul>",
                 "<h1>Title</h1>",
                 "<blockquote>Quote</blockquote>",
-                "Just plain text"
+                "Just plain text",
+                "if a < b and b > c",
+                "<3 <<< >>>",
+                "javascript: the good parts, data: 42",
+                "<p>Turn on=off</p>"
+        );
+    }
+
+    @ParameterizedTest(name = "linear time: {0}")
+    @MethodSource("adversarialCases")
+    void testAdversarialInputIsLinear(String name, String input) {
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            InputSanitizer.sanitizeContent(input);
+            InputSanitizer.stripAllHtml(input);
+        });
+    }
+
+    static Stream<Arguments> adversarialCases() {
+        return Stream.of(
+                Arguments.of("unclosed dangerous anchors",
+                        "<a href=\"javascript:x\">".repeat(20_000)),
+                Arguments.of("unmatched brackets", "<".repeat(200_000)),
+                Arguments.of("handler names without values", "<p " + "onx".repeat(100_000)),
+                Arguments.of("protocol names without colons", "<a href=\"" + "javascript ".repeat(50_000))
         );
     }
 
@@ -33,3 +33,10 @@ Feature: Notes API
     Then the response status should be 204
     When I get the note by saved ID
     Then the response status should be 404
+
+  Scenario: Metrics are only served to admins
+
+    When I get all notes
+    Then the response status should be 200
+    When I scrape the Prometheus endpoint
+    Then the response status should be 403